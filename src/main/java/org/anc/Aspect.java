@@ -23,6 +23,8 @@ import java.io.File;
 
 import javax.swing.UIManager;
 
+import org.anc.io.DirectoryDeleter;
+
 /**
  * Encapsulates frequently needed functionality that is common to many classes.
  * There are two basic types of methods in the Aspect class:
@@ -114,20 +116,16 @@ public abstract class Aspect
             "&gt;").replaceAll("\"", "&quot;");
    }
 
+   /**
+    * Deletes the file, or the directory and everything in it. Deletion
+    * continues past files that can not be deleted; use a
+    * {@link DirectoryDeleter} to find out what they were.
+    * 
+    * @return <code>true</code> if everything was deleted.
+    */
    public static boolean delete(File file)
    {
-      if (file.isDirectory())
-      {
-         File[] files = file.listFiles();
-         for (File f : files)
-         {
-            if (!delete(f))
-            {
-               return false;
-            }
-         }
-      }
-      return file.delete();
+      return new DirectoryDeleter().delete(file).isEmpty();
    }
    
    // Exception handling methods.
@@ -0,0 +1,403 @@
+/*-
+ * Copyright 2011 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.constants;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.anc.io.UTF8Reader;
+
+/**
+ * Binds command line arguments directly into the typed fields of a
+ * parameters object. This replaces the deprecated {@link org.anc.util.Args}
+ * class.
+ * <p>
+ * Every public field annotated with &#064;Option is a parameter. Fields may
+ * have any of the types supported by {@link Constants}, including sizes and
+ * &#064;Duration fields, and a <tt>List&lt;T&gt;</tt> field collects every
+ * value given for a parameter that is repeated. The field descriptors are
+ * cached per class and shared with Constants, so nothing is reflected over
+ * after the first use of a class.
+ * <p>
+ * Arguments have the form <tt>-name=value</tt>, <tt>-name value</tt> or, for
+ * boolean fields, just <tt>-name</tt>. Two leading dashes are also accepted.
+ * Arguments that do not start with a dash, and every argument after
+ * <tt>--</tt>, are added to the List field annotated with &#064;Remaining.
+ * <p>
+ * An argument of the form <tt>@file</tt> is replaced by the arguments in the
+ * file, one per line. The value of a <tt>-name value</tt> argument is never
+ * expanded, so <tt>-user @admin</tt> works as expected. Blank lines and lines
+ * starting with '#' are skipped. The file is streamed a line at a time, so it
+ * can hold very long lists of input files.
+ * 
+ * <pre>
+ * public class Parameters
+ * {
+ *    &#064;Option(description = "Number of worker threads.")
+ *    public int threads = 4;
+ *    &#064;Option(required = true)
+ *    public Path output;
+ *    &#064;Remaining
+ *    public List&lt;String&gt; inputs;
+ * }
+ * 
+ * Parameters params = new Parameters();
+ * Arguments arguments = new Arguments(params);
+ * if (!arguments.parse(args))
+ * {
+ *    arguments.printErrors();
+ *    return;
+ * }
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class Arguments
+{
+   /** Marks a field as a command line parameter. */
+   @Documented
+   @Target(ElementType.FIELD)
+   @Retention(RetentionPolicy.RUNTIME)
+   public @interface Option
+   {
+      /** The name of the parameter. Defaults to the name of the field. */
+      String value() default "";
+
+      boolean required() default false;
+
+      String description() default "";
+   }
+
+   /** Marks the List field that receives the arguments that are not options. */
+   @Documented
+   @Target(ElementType.FIELD)
+   @Retention(RetentionPolicy.RUNTIME)
+   public @interface Remaining
+   {
+   }
+
+   /** The maximum depth of nested @file arguments. */
+   private static final int MAX_DEPTH = 8;
+
+   private final Object target;
+   private final Map<String, Binding.Slot> options = new LinkedHashMap<String, Binding.Slot>();
+   private Binding.Slot remaining = null;
+   private final List<String> errors = new ArrayList<String>();
+
+   /* Parsing state. */
+   private final Set<Binding.Slot> seen = new HashSet<Binding.Slot>();
+   private final Deque<BufferedReader> readers = new ArrayDeque<BufferedReader>();
+   private String[] args;
+   private int position;
+   private boolean literal;
+
+   /**
+    * @throws IllegalArgumentException if a field annotated with &#064;Option
+    *            or &#064;Remaining can not be bound, for example because it
+    *            is not public or its type can not be converted from a string.
+    */
+   public Arguments(Object target)
+   {
+      this.target = target;
+      Set<Field> bound = new HashSet<Field>();
+      for (Binding.Slot slot : Binding.forParameters(target.getClass()).slots)
+      {
+         bound.add(slot.field);
+         Option option = slot.field.getAnnotation(Option.class);
+         if (option != null)
+         {
+            String name = option.value().length() == 0 ? slot.name : option.value();
+            options.put(name, slot);
+         }
+         if (slot.field.isAnnotationPresent(Remaining.class))
+         {
+            if (!slot.repeated)
+            {
+               throw new IllegalArgumentException("The @Remaining field " + slot.name + " must be a List.");
+            }
+            remaining = slot;
+         }
+      }
+      for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass())
+      {
+         for (Field field : type.getDeclaredFields())
+         {
+            if ((field.isAnnotationPresent(Option.class) || field.isAnnotationPresent(Remaining.class))
+                  && !bound.contains(field))
+            {
+               throw new IllegalArgumentException("The field " + field.getName() + " of type "
+                     + field.getGenericType() + " can not be bound to an argument. Fields must be public, "
+                     + "not static, and of a type supported by Constants or a List of one.");
+            }
+         }
+      }
+   }
+
+   /**
+    * Parses the arguments into the parameters object.
+    * 
+    * @return <code>true</code> if there were no errors.
+    */
+   public boolean parse(String... args)
+   {
+      this.args = args;
+      position = 0;
+      literal = false;
+      seen.clear();
+      errors.clear();
+      try
+      {
+         String arg = next(true);
+         while (arg != null)
+         {
+            parse(arg);
+            arg = next(true);
+         }
+      }
+      catch (IOException e)
+      {
+         errors.add(e.getMessage());
+      }
+      finally
+      {
+         while (!readers.isEmpty())
+         {
+            close(readers.pop());
+         }
+      }
+      for (Map.Entry<String, Binding.Slot> entry : options.entrySet())
+      {
+         Binding.Slot slot = entry.getValue();
+         if (slot.field.getAnnotation(Option.class).required() && !seen.contains(slot))
+         {
+            errors.add("Required argument -" + entry.getKey() + " is missing.");
+         }
+      }
+      return errors.isEmpty();
+   }
+
+   public boolean valid()
+   {
+      return errors.isEmpty();
+   }
+
+   public List<String> getErrors()
+   {
+      return errors;
+   }
+
+   public void printErrors()
+   {
+      printErrors(System.out);
+   }
+
+   public void printErrors(PrintStream out)
+   {
+      for (String error : errors)
+      {
+         out.println(error);
+      }
+   }
+
+   /** Prints each parameter with its description. */
+   public void printUsage(PrintStream out)
+   {
+      for (Map.Entry<String, Binding.Slot> entry : options.entrySet())
+      {
+         Option option = entry.getValue().field.getAnnotation(Option.class);
+         out.print("  -" + entry.getKey());
+         if (option.required())
+         {
+            out.print(" (required)");
+         }
+         if (option.description().length() > 0)
+         {
+            out.print("  " + option.description());
+         }
+         out.println();
+      }
+   }
+
+   private void parse(String arg) throws IOException
+   {
+      if (literal || !arg.startsWith("-") || arg.length() == 1)
+      {
+         if (remaining == null)
+         {
+            errors.add("Invalid argument " + arg + ". Arguments must start with a '-' (dash).");
+         }
+         else
+         {
+            set(remaining, arg, arg);
+         }
+         return;
+      }
+      if (arg.equals("--"))
+      {
+         literal = true;
+         return;
+      }
+      int start = arg.startsWith("--") ? 2 : 1;
+      int equal = arg.indexOf('=');
+      String name = (equal < 0 ? arg.substring(start) : arg.substring(start, equal)).trim();
+      Binding.Slot slot = options.get(name);
+      if (slot == null)
+      {
+         errors.add("Unknown parameter " + arg.substring(0, equal < 0 ? arg.length() : equal));
+         return;
+      }
+      String value;
+      if (equal >= 0)
+      {
+         value = arg.substring(equal + 1).trim();
+      }
+      else if (slot.type == Binding.Type.BOOLEAN)
+      {
+         value = "true";
+      }
+      else
+      {
+         value = next(false);
+         if (value == null)
+         {
+            errors.add("Missing value for -" + name);
+            return;
+         }
+      }
+      set(slot, name, value);
+   }
+
+   private void set(Binding.Slot slot, String name, String value)
+   {
+      Object object;
+      try
+      {
+         object = slot.convert(value);
+      }
+      catch (IllegalArgumentException e)
+      {
+         errors.add("Invalid value for -" + name + ": " + value);
+         return;
+      }
+      boolean first = seen.add(slot);
+      if (slot.repeated)
+      {
+         @SuppressWarnings("unchecked")
+         List<Object> list = (List<Object>) slot.get(target);
+         if (first || list == null)
+         {
+            // Values on the command line replace the field's initial list.
+            list = new ArrayList<Object>();
+            slot.set(target, list);
+         }
+         list.add(object);
+      }
+      else
+      {
+         slot.set(target, object);
+      }
+   }
+
+   /**
+    * Returns the next argument, reading from the innermost @file first, or
+    * null when all the arguments have been read.
+    * 
+    * @param expand
+    *           If <code>true</code> an <tt>@file</tt> argument is replaced by
+    *           the contents of the file. It is <code>false</code> when reading
+    *           the value of a <tt>-name value</tt> argument, since a value is
+    *           never the name of an arguments file.
+    */
+   private String next(boolean expand) throws IOException
+   {
+      while (true)
+      {
+         String arg;
+         if (!readers.isEmpty())
+         {
+            arg = readers.peek().readLine();
+            if (arg == null)
+            {
+               close(readers.pop());
+               continue;
+            }
+            arg = arg.trim();
+            if (arg.length() == 0 || arg.startsWith("#"))
+            {
+               continue;
+            }
+         }
+         else if (position < args.length)
+         {
+            arg = args[position++];
+         }
+         else
+         {
+            return null;
+         }
+         if (expand && !literal && arg.length() > 1 && arg.charAt(0) == '@')
+         {
+            open(arg.substring(1));
+            continue;
+         }
+         return arg;
+      }
+   }
+
+   private void open(String path) throws IOException
+   {
+      if (readers.size() >= MAX_DEPTH)
+      {
+         throw new IOException("Arguments files are nested too deeply: " + path);
+      }
+      File file = new File(path);
+      if (!file.isFile())
+      {
+         errors.add("Arguments file not found: " + path);
+         return;
+      }
+      readers.push(new BufferedReader(new UTF8Reader(file)));
+   }
+
+   private static void close(BufferedReader reader)
+   {
+      try
+      {
+         reader.close();
+      }
+      catch (IOException e)
+      {
+         // Nothing can be done and the arguments have already been read.
+      }
+   }
+}
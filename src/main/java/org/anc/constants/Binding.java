@@ -0,0 +1,505 @@
+/*-
+ * Copyright 2011 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.constants;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The field descriptor table for one {@link Constants} subclass, or for a
+ * parameters class bound by {@link Arguments}.
+ * <p>
+ * The table is built the first time the class is used and is shared by every
+ * instance after that. There is one {@link Slot} for every field that can be
+ * bound, holding its name, type code, {@link MethodHandle} getter and setter,
+ * and the value of its &#064;Default annotation, already converted to the
+ * field's type when the default does not refer to any variables.
+ * 
+ * @author Keith Suderman
+ */
+final class Binding
+{
+   private static final ClassValue<Binding> BINDINGS = new ClassValue<Binding>() {
+      @Override
+      protected Binding computeValue(Class<?> type)
+      {
+         return new Binding(type, true);
+      }
+   };
+
+   private static final ClassValue<Binding> PARAMETERS = new ClassValue<Binding>() {
+      @Override
+      protected Binding computeValue(Class<?> type)
+      {
+         return new Binding(type, false);
+      }
+   };
+
+   private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+   private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+   final Slot[] slots;
+   private final Map<String, Slot> index = new HashMap<String, Slot>();
+
+   /**
+    * @param constants If true only the public final fields declared by the
+    *           class itself are bound, as {@link Constants} requires. Otherwise
+    *           all public instance fields, including inherited ones, are bound
+    *           and List fields hold repeated values.
+    */
+   private Binding(Class<?> type, boolean constants)
+   {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      List<Slot> list = new ArrayList<Slot>();
+      for (Field field : constants ? type.getDeclaredFields() : type.getFields())
+      {
+         int flags = field.getModifiers();
+         if (!Modifier.isPublic(flags) || Modifier.isStatic(flags) || (constants && !Modifier.isFinal(flags)))
+         {
+            continue;
+         }
+         Class<?> valueType = field.getType();
+         boolean repeated = false;
+         if (!constants && (valueType == List.class || valueType == Collection.class))
+         {
+            valueType = getElementType(field);
+            repeated = true;
+         }
+         Type fieldType = valueType == null ? null : Type.forClass(valueType, field);
+         if (fieldType == null)
+         {
+            continue;
+         }
+         MethodHandle getter;
+         MethodHandle setter;
+         try
+         {
+            field.setAccessible(true);
+            getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+         }
+         catch (IllegalAccessException e)
+         {
+            e.printStackTrace();
+            continue;
+         }
+         Constants.Default annotation = field.getAnnotation(Constants.Default.class);
+         String defaultValue = annotation == null ? null : annotation.value();
+         Constants.Duration duration = field.getAnnotation(Constants.Duration.class);
+         TimeUnit unit = duration == null ? null : duration.value();
+         Slot slot = new Slot(list.size(), field, fieldType, valueType, repeated, unit, getter, setter,
+               defaultValue);
+         list.add(slot);
+         index.put(slot.name, slot);
+      }
+      slots = list.toArray(new Slot[list.size()]);
+   }
+
+   static Binding of(Class<?> type)
+   {
+      return BINDINGS.get(type);
+   }
+
+   /** Returns the binding for a command line parameters class. */
+   static Binding forParameters(Class<?> type)
+   {
+      return PARAMETERS.get(type);
+   }
+
+   /** Returns the element class of a List&lt;T&gt; field, or null. */
+   private static Class<?> getElementType(Field field)
+   {
+      java.lang.reflect.Type generic = field.getGenericType();
+      if (generic instanceof ParameterizedType)
+      {
+         java.lang.reflect.Type[] arguments = ((ParameterizedType) generic).getActualTypeArguments();
+         if (arguments.length == 1 && arguments[0] instanceof Class)
+         {
+            return (Class<?>) arguments[0];
+         }
+      }
+      return null;
+   }
+
+   /** Returns the slot for the named field, or null if there isn't one. */
+   Slot get(String name)
+   {
+      return index.get(name);
+   }
+
+   /** A field that can be initialized from a property value. */
+   static final class Slot
+   {
+      final String name;
+      final Field field;
+      final Type type;
+      /** The type of the field's value, or of its elements if repeated. */
+      final Class<?> javaType;
+      /** True if the field is a List that collects repeated values. */
+      final boolean repeated;
+      /** The unit of a duration field. */
+      final TimeUnit unit;
+      final MethodHandle getter;
+      final MethodHandle setter;
+      final int index;
+      final String defaultValue;
+      /** The compiled default value, or null if there is no default. */
+      final Template defaultTemplate;
+      /** The converted default value, or null if it contains variables. */
+      final Object parsedDefault;
+
+      Slot(int index, Field field, Type type, Class<?> javaType, boolean repeated, TimeUnit unit,
+            MethodHandle getter, MethodHandle setter, String defaultValue)
+      {
+         this.index = index;
+         this.name = field.getName();
+         this.field = field;
+         this.type = type;
+         this.javaType = javaType;
+         this.repeated = repeated;
+         this.unit = unit;
+         this.getter = getter;
+         this.setter = setter;
+         this.defaultValue = defaultValue;
+         this.defaultTemplate = defaultValue == null ? null : Template.compile(defaultValue);
+         this.parsedDefault = parse(defaultTemplate);
+      }
+
+      /** Converts a property value to the type of the field. */
+      Object convert(String value)
+      {
+         return type.convert(this, value);
+      }
+
+      private Object parse(Template template)
+      {
+         if (template == null || !template.isConstant())
+         {
+            return null;
+         }
+         String value = template.toString();
+         try
+         {
+            return convert(value);
+         }
+         catch (IllegalArgumentException e)
+         {
+            // Reported when the default is actually used.
+            return null;
+         }
+      }
+
+      Object get(Object target)
+      {
+         try
+         {
+            return getter.invokeExact(target);
+         }
+         catch (RuntimeException e)
+         {
+            throw e;
+         }
+         catch (Error e)
+         {
+            throw e;
+         }
+         catch (Throwable e)
+         {
+            throw new IllegalStateException(e);
+         }
+      }
+
+      void set(Object target, Object value)
+      {
+         try
+         {
+            setter.invokeExact(target, value);
+         }
+         catch (RuntimeException e)
+         {
+            throw e;
+         }
+         catch (Error e)
+         {
+            throw e;
+         }
+         catch (Throwable e)
+         {
+            e.printStackTrace();
+         }
+      }
+   }
+
+   /**
+    * The field types that can be bound. Each type converts a property string
+    * into a value for the field. Values are boxed here, once, and unboxed by
+    * the setter when the field is a primitive.
+    */
+   enum Type
+   {
+      STRING {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            return value;
+         }
+      },
+      INTEGER {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            long size = parseSize(value);
+            if (size < Integer.MIN_VALUE || size > Integer.MAX_VALUE)
+            {
+               throw new NumberFormatException("Value out of range for " + slot.name + ": " + value);
+            }
+            return Integer.valueOf((int) size);
+         }
+      },
+      LONG {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            return Long.valueOf(parseSize(value));
+         }
+      },
+      FLOAT {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            return Float.valueOf(value);
+         }
+      },
+      DOUBLE {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            return Double.valueOf(value);
+         }
+      },
+      BOOLEAN {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            return Boolean.valueOf(value);
+         }
+      },
+      PATH {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            return Paths.get(value);
+         }
+      },
+      ENUM {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            value = value.trim();
+            for (Object constant : slot.javaType.getEnumConstants())
+            {
+               if (((Enum<?>) constant).name().equalsIgnoreCase(value))
+               {
+                  return constant;
+               }
+            }
+            throw new IllegalArgumentException("Invalid value for " + slot.name + ": " + value);
+         }
+      },
+      DURATION {
+         @Override
+         Object convert(Slot slot, String value)
+         {
+            long duration = parseDuration(value, slot.unit);
+            if (slot.javaType == int.class || slot.javaType == Integer.class)
+            {
+               if (duration < Integer.MIN_VALUE || duration > Integer.MAX_VALUE)
+               {
+                  throw new NumberFormatException("Value out of range for " + slot.name + ": " + value);
+               }
+               return Integer.valueOf((int) duration);
+            }
+            return Long.valueOf(duration);
+         }
+      };
+
+      abstract Object convert(Slot slot, String value);
+
+      /**
+       * Returns the type code for values of the given class stored in the
+       * field, or null if it is not supported.
+       */
+      static Type forClass(Class<?> type, Field field)
+      {
+         if (field.isAnnotationPresent(Constants.Duration.class))
+         {
+            if (type == int.class || type == Integer.class || type == long.class || type == Long.class)
+            {
+               return DURATION;
+            }
+            return null;
+         }
+         if (type == String.class)
+         {
+            return STRING;
+         }
+         if (type == Integer.class || type == int.class)
+         {
+            return INTEGER;
+         }
+         if (type == Long.class || type == long.class)
+         {
+            return LONG;
+         }
+         if (type == Float.class || type == float.class)
+         {
+            return FLOAT;
+         }
+         if (type == Double.class || type == double.class)
+         {
+            return DOUBLE;
+         }
+         if (type == Boolean.class || type == boolean.class)
+         {
+            return BOOLEAN;
+         }
+         if (type == Path.class)
+         {
+            return PATH;
+         }
+         if (type.isEnum())
+         {
+            return ENUM;
+         }
+         return null;
+      }
+   }
+
+   /**
+    * Parses an integer that may be followed by one of the (case insensitive)
+    * size suffixes k, m, g or t, optionally followed by b. Sizes are powers of
+    * 1024, so "512m" is 536870912.
+    */
+   static long parseSize(String value)
+   {
+      String s = value.trim();
+      int end = s.length();
+      if (end > 1 && (s.charAt(end - 1) == 'b' || s.charAt(end - 1) == 'B')
+            && !Character.isDigit(s.charAt(end - 2)))
+      {
+         --end;
+      }
+      int shift = 0;
+      if (end > 1)
+      {
+         switch (Character.toLowerCase(s.charAt(end - 1)))
+         {
+            case 'k':
+               shift = 10;
+               break;
+            case 'm':
+               shift = 20;
+               break;
+            case 'g':
+               shift = 30;
+               break;
+            case 't':
+               shift = 40;
+               break;
+            default:
+               break;
+         }
+      }
+      if (shift == 0)
+      {
+         return Long.parseLong(s.substring(0, end));
+      }
+      long n = Long.parseLong(s.substring(0, end - 1).trim());
+      if (Math.abs(n) > (Long.MAX_VALUE >> shift))
+      {
+         throw new NumberFormatException("Size out of range: " + value);
+      }
+      return n << shift;
+   }
+
+   /**
+    * Parses a duration like "250ms", "30s", "5m", "2h" or "1d" and converts
+    * it to the given unit. A number without a suffix is already in that unit.
+    * The other suffixes recognized are "ns" and "us".
+    */
+   static long parseDuration(String value, TimeUnit unit)
+   {
+      String s = value.trim();
+      int end = s.length();
+      while (end > 0 && Character.isLetter(s.charAt(end - 1)))
+      {
+         --end;
+      }
+      String suffix = s.substring(end).toLowerCase();
+      long n = Long.parseLong(s.substring(0, end).trim());
+      TimeUnit from;
+      if (suffix.length() == 0)
+      {
+         return n;
+      }
+      else if (suffix.equals("ns"))
+      {
+         from = TimeUnit.NANOSECONDS;
+      }
+      else if (suffix.equals("us"))
+      {
+         from = TimeUnit.MICROSECONDS;
+      }
+      else if (suffix.equals("ms"))
+      {
+         from = TimeUnit.MILLISECONDS;
+      }
+      else if (suffix.equals("s"))
+      {
+         from = TimeUnit.SECONDS;
+      }
+      else if (suffix.equals("m"))
+      {
+         from = TimeUnit.MINUTES;
+      }
+      else if (suffix.equals("h"))
+      {
+         from = TimeUnit.HOURS;
+      }
+      else if (suffix.equals("d"))
+      {
+         from = TimeUnit.DAYS;
+      }
+      else
+      {
+         throw new NumberFormatException("Invalid duration: " + value);
+      }
+      return unit.convert(n, from);
+   }
+}
@@ -18,12 +18,9 @@ package org.anc.constants;
 
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
@@ -32,9 +29,11 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The base class used for declaring project wide constant values.
@@ -60,8 +59,21 @@ import java.util.Properties;
  * </pre>
  * <p>Each public field in the subclass must be initialized to null and the subclass
  * constructor(s) must call {@code super.init()}. The Constants subclass can contain
- * fields of type String, Boolean, Integer, Float, and Double. However, the value specified
- * by the &#064;Default annotation is always a String.
+ * fields of type String, Boolean, Integer, Long, Float, Double, java.nio.file.Path
+ * and any enum type. However, the value specified by the &#064;Default annotation 
+ * is always a String. Integer and Long values may use the size suffixes k, m, g
+ * and t, so "512m" is 536870912, and fields marked with &#064;Duration accept 
+ * values like "30s".
+ * <p>Fields may also be primitive int, long, float, double or boolean so that hot 
+ * code does not have to unbox them. Primitive fields must be initialized with 
+ * {@link #INT}, {@link #LONG}, {@link #FLOAT}, {@link #DOUBLE} or {@link #BOOLEAN} rather than a
+ * literal, otherwise the compiler treats them as constants and inlines the literal.
+ * <pre>
+ * &#064;Default("512m")
+ * public final long BUFFER_SIZE = LONG;
+ * &#064;Default("30s") &#064;Duration
+ * public final long TIMEOUT = LONG;
+ * </pre>
  * 
  * <p>An instance of the subclass can then be created (usually as a static final 
  * field of the application object) to access the defined constants.
@@ -83,16 +95,20 @@ import java.util.Properties;
  * <li><tt>machineName</tt> is the value of the environment variable HOSTNAME (Unix based OSes) or COMPUTERNAME (Windows)</li>
  * <li><tt>class.name</tt> is the fully qualified Java class name.
  * </ul>
- * <p>The {@code Constants} class will first look for the properties file on the
- * file system and then on the class path. If a properties file can not be found
- * the fields will be initialized with the values from the &#064;Default annotations.
+ * <p>The {@code Constants} class will look for the properties file both on the
+ * class path and on the file system, with values from the file system taking
+ * precedence. Fields that are not found in either will be initialized with the
+ * values from the &#064;Default annotations.
  * <p>
  * A sub-class can also specify the properties file to use with the {@code init(String)} 
  * method. The String parameter passed to the {@code init} method should be the name of a 
  * Java system property or an OS environmental variable. The {@code Constants} class 
  * will first try {@code System.getProperty} and then {@code System.getenv} to obtain 
- * a file name. If neither property has been set the above method is used to locate
- * the properties file. For example,
+ * a file name. If neither property has been set only the files described above are
+ * used. Values in the named file override values from the files above, and a
+ * single value can be overridden with a system property named after the class
+ * and field, e.g. {@code -Dorg.anc.example.MyConstants.HELLO_WORLD=Hi}.
+ * For example,
  * <pre>
  * // In MyConstants.java
  * package org.anc.example;
@@ -120,6 +136,18 @@ import java.util.Properties;
  * > java -cp MyConstants.jar -Dorg.anc.hello=/home/anc/hello.properties org.anc.example.MyConstants
  * > Bonjour le monde
  * </pre>
+ * <p>Values may refer to other fields with <tt>${NAME}</tt>, or <tt>$NAME</tt>
+ * when the name is followed by a '/' or the end of the value. Environment
+ * variables and system properties can be used with <tt>${env:NAME}</tt> and
+ * <tt>${sys:name}</tt>. Fields are resolved in dependency order, so a field may
+ * refer to a field declared after it, and circular references cause an
+ * IllegalStateException.
+ * <pre>
+ * &#064;Default("${ROOT}/data")
+ * public final String DATA = null;
+ * &#064;Default("${sys:user.home}/corpus")
+ * public final String ROOT = null;
+ * </pre>
  * <p>A properties file containing the default values can be generated by 
  * creating an instance of the class and calling the {@code save()} method. This is
  * convenient when you want to create properties files for use with other machines.
@@ -139,13 +167,6 @@ public abstract class Constants
 {
    private static final long serialVersionUID = 1L;
 
-   /**
-    * Symbol table used to resolve variable names during initialization.
-    * After initialization is complete this should be set back to null to
-    * release the memory.
-    */
-   private Map<String, String> variables = null;
-   
    /**
     * Annotation used to provide a default value for constants.
     * 
@@ -159,6 +180,73 @@ public abstract class Constants
       String value();
    }
 
+   /**
+    * Marks an int, Integer, long or Long field as a duration. The value may
+    * have one of the suffixes ns, us, ms, s, m, h or d, e.g. "30s", and is
+    * converted to the unit of the annotation, milliseconds by default.
+    * 
+    * @author Keith Suderman
+    */
+   @Documented
+   @Target(ElementType.FIELD)
+   @Retention(RetentionPolicy.RUNTIME)
+   public @interface Duration
+   {
+      TimeUnit value() default TimeUnit.MILLISECONDS;
+   }
+
+   /*
+    * Initial values for primitive fields. A primitive field initialized with a
+    * literal is a compile time constant and the compiler copies the literal
+    * into the code that reads it, so the value from the properties file would
+    * never be seen. These are not compile time constants.
+    */
+   /** Initial value for int fields. */
+   protected static final int INT = Integer.valueOf(0).intValue();
+   /** Initial value for long fields. */
+   protected static final long LONG = Long.valueOf(0).longValue();
+   /** Initial value for float fields. */
+   protected static final float FLOAT = Float.valueOf(0).floatValue();
+   /** Initial value for double fields. */
+   protected static final double DOUBLE = Double.valueOf(0).doubleValue();
+   /** Initial value for boolean fields. */
+   protected static final boolean BOOLEAN = Boolean.FALSE.booleanValue();
+
+   /**
+    * The properties file the values were loaded from, or null if they were
+    * loaded from the class path or the defaults were used.
+    */
+   private File source = null;
+
+   /** Every properties file the values were loaded from, in order. */
+   private final List<File> sources = new ArrayList<File>();
+
+   /**
+    * Set by {@link ReloadableConstants} while it creates a new snapshot so that
+    * a properties file that can not be read is reported rather than replaced
+    * with the default values.
+    */
+   static final ThreadLocal<Boolean> STRICT = new ThreadLocal<Boolean>();
+
+   /**
+    * Returns the properties file the constants were loaded from, or
+    * <code>null</code> if the values came from the class path or from the
+    * &#064;Default annotations.
+    */
+   public File getSource()
+   {
+      return source;
+   }
+
+   /**
+    * Returns every properties file on the file system the constants were
+    * loaded from, in the order they were applied.
+    */
+   public List<File> getSources()
+   {
+      return Collections.unmodifiableList(sources);
+   }
+
    public void save() throws IOException
    {
       String name = getName();
@@ -182,24 +270,15 @@ public abstract class Constants
    public void save(File file) throws IOException
    {
       Properties props = new Properties();
-      Class<? extends Constants> subclass = this.getClass();
-      for (Field field : subclass.getDeclaredFields())
+      for (Binding.Slot slot : Binding.of(this.getClass()).slots)
       {
-         String name = field.getName();
-         if (isPublicFinalString(field) || 
-               isPublicFinalInteger(field) || 
-               isPublicFinalFloat(field) || 
-               isPublicFinalDouble(field) ||
-               isPublicFinalBoolean(field))
+         try
          {
-            try
-            {
-               props.put(name, field.get(this).toString());
-            }
-            catch (Exception e)
-            {
-               throw new IOException("Unable to save field : " + name, e);
-            }
+            props.put(slot.name, slot.get(this).toString());
+         }
+         catch (Exception e)
+         {
+            throw new IOException("Unable to save field : " + slot.name, e);
          }
       }
       OutputStream os = new FileOutputStream(file);
@@ -214,52 +293,71 @@ public abstract class Constants
       }
    }
    
+   /**
+    * Merges the properties from all sources, each overriding the ones before
+    * it:
+    * <ol>
+    * <li>the {@link #getName() host} properties file on the class path,</li>
+    * <li>the host properties file on the file system,</li>
+    * <li>the file named by the <code>propName</code> system property or
+    * environment variable,</li>
+    * <li>system properties named <tt>class.name.FIELD</tt>, e.g.
+    * <tt>-Dorg.anc.example.MyConstants.NTHREADS=4</tt>.</li>
+    * </ol>
+    * Each file is parsed once per JVM and shared by all Constants classes.
+    */
    protected Properties getProperties(String propName) throws FileNotFoundException, IOException
    {
       Properties props = new Properties();
-      String propValue = null;
+      String name = getName();
+      props.putAll(PropertySources.resource(name));
+
+      File propFile = new File(name);
+      if (propFile.exists())
+      {
+         props.putAll(load(propFile, false));
+      }
+
       if (propName != null)
       {
-         propValue = System.getProperty(propName);
-         if (propValue != null)
+         String propValue = System.getProperty(propName);
+         if (propValue == null)
          {
-            props.load(new FileReader(propValue));
-            return props;
+            propValue = System.getenv(propName);
          }
-         
-         propValue = System.getenv(propName);
          if (propValue != null)
          {
-            props.load(new FileReader(propValue));
-            return props;
+            props.putAll(load(new File(propValue), true));
          }
-      }      
-      propValue = getName();
-      InputStream in = null;
-      // First try to find the properties file on the file system.
-      File propFile = new File(propValue);
-      if (propFile.exists())
-      {
-         in = new FileInputStream(propFile);
       }
-      
-      // Then try the class path.
-      if (in == null)
+
+      String prefix = this.getClass().getName() + ".";
+      Properties system = System.getProperties();
+      for (String key : system.stringPropertyNames())
       {
-         ClassLoader loader = Thread.currentThread().getContextClassLoader();
-         if (loader == null)
-         {
-            loader = Constants.class.getClassLoader();
-         }
-         in = loader.getResourceAsStream(propValue);
-         if (in == null)
+         if (key.startsWith(prefix))
          {
-            //throw new FileNotFoundException("Properties " + propValue + " not found.");
-            return new Properties();
+            props.setProperty(key.substring(prefix.length()), system.getProperty(key));
          }
       }
-      // 'in' can not be null or an exception would have been thrown above.
-      props.load(in);
+      return props;
+   }
+
+   /**
+    * @param text
+    *           If <code>true</code> the file is read with the platform's
+    *           character set, otherwise as ISO-8859-1.
+    */
+   private Properties load(File file, boolean text) throws IOException
+   {
+      if (Boolean.TRUE.equals(STRICT.get()) && file.length() == 0)
+      {
+         // Most likely a file that is being rewritten.
+         throw new IOException(file.getPath() + " is empty.");
+      }
+      Properties props = text ? PropertySources.textFile(file) : PropertySources.file(file);
+      source = file;
+      sources.add(file);
       return props;
    }
    
@@ -293,7 +391,7 @@ public abstract class Constants
    
    protected void init(String propertyName)
    {
-      variables = new HashMap<String, String>();
+      Binding binding = Binding.of(this.getClass());
       Properties props;
       try
       {
@@ -301,108 +399,113 @@ public abstract class Constants
       }
       catch (Exception e)
       {
+         if (Boolean.TRUE.equals(STRICT.get()))
+         {
+            throw new IllegalStateException("Unable to load properties for " + getClass().getName(), e);
+         }
          System.err.println("Unable to load properties from " + propertyName);
          e.printStackTrace();
          props = new Properties();
       }
 
-      Class<? extends Constants> subclass = this.getClass();
-      Field[] fields = subclass.getDeclaredFields();
-      for (Field field : fields)
+      Resolution resolution = new Resolution(binding, props);
+      for (Binding.Slot slot : binding.slots)
       {
-         String value = getInitValue(props, field);
-         if (value == null)
-         {
-            continue;
-         }
-         if (isPublicFinalString(field))
-         {
-            set(field, value);
-         }
-         else if (isPublicFinalInteger(field))
-         {
-            set(field, new Integer(value));
-         }
-         else if (isPublicFinalFloat(field))
+         Object value = resolution.getValue(slot);
+         if (value != null)
          {
-            set(field, new Float(value));
+            slot.set(this, value);
          }
-         else if (isPublicFinalDouble(field))
+      }
+   }
+
+   /**
+    * Resolves the values of all fields during initialization. A field that
+    * refers to other fields is resolved after them, whatever order the fields
+    * are declared in, and circular references are reported.
+    */
+   private static class Resolution implements Template.Resolver
+   {
+      private static final byte UNRESOLVED = 0;
+      private static final byte RESOLVING = 1;
+      private static final byte RESOLVED = 2;
+
+      private final Binding binding;
+      private final Properties props;
+      private final String[] values;
+      private final byte[] states;
+      /** The fields currently being resolved, used to report cycles. */
+      private final List<String> path = new ArrayList<String>();
+
+      Resolution(Binding binding, Properties props)
+      {
+         this.binding = binding;
+         this.props = props;
+         this.values = new String[binding.slots.length];
+         this.states = new byte[binding.slots.length];
+      }
+
+      Object getValue(Binding.Slot slot)
+      {
+         if (props.getProperty(slot.name) == null && slot.parsedDefault != null)
          {
-            set(field, new Double(value));
+            return slot.parsedDefault;
          }
-         else if (isPublicFinalBoolean(field))
+         String value = resolve(slot);
+         if (value == null)
          {
-            set(field, new Boolean(value));
+            return null;
          }
+         return slot.convert(value);
       }
-      variables = null;
-   }
 
-   private String getInitValue(Properties props, Field field)
-   {
-      String sValue = props.getProperty(field.getName());
-      if (sValue == null)
+      @Override
+      public String resolve(String name)
       {
-         Default defaultValue = field.getAnnotation(Default.class);
-         if (defaultValue == null)
+         Binding.Slot slot = binding.get(name);
+         if (slot == null)
          {
-            // This is definitely a programming error.
-            //throw new RuntimeException("Missing @Default annotation on "
-            //      + field.getName());
-            // NO, it may not be a programming error.  Groovy adds fields to 
-            // classes which will not contain Default annotations.
             return null;
          }
-         sValue = defaultValue.value();
+         return resolve(slot);
       }
-      return replaceVariables(sValue);
-   }
-   
-   private String replaceVariables(String input)
-   {
-      int index = input.indexOf('$');
-      while (index >= 0)
+
+      private String resolve(Binding.Slot slot)
       {
-         int end = input.indexOf('/', index);
-         if (end < index)
+         int i = slot.index;
+         if (states[i] == RESOLVED)
          {
-            end = input.length();
+            return values[i];
          }
-         String key = input.substring(index + 1, end);
-         String value = variables.get(key);
-         if (value != null)
+         if (states[i] == RESOLVING)
          {
-            String prefix = input.substring(0, index);
-            input = prefix + value + input.substring(end);
-            index = input.indexOf('$', prefix.length());
+            StringBuilder message = new StringBuilder("Circular variable reference: ");
+            for (String name : path.subList(path.indexOf(slot.name), path.size()))
+            {
+               message.append(name).append(" -> ");
+            }
+            message.append(slot.name);
+            throw new IllegalStateException(message.toString());
          }
-         else
+         states[i] = RESOLVING;
+         path.add(slot.name);
+         Template template;
+         String sValue = props.getProperty(slot.name);
+         if (sValue != null)
          {
-            index = input.indexOf('$', end);
+            template = Template.compile(sValue);
          }
-      }
-      return input;
-   }
-   
-   private void set(Field field, Object value) 
-   {
-      try
-      {
-         field.setAccessible(true);
-         field.set(this, value);
-         if (value instanceof String)
+         else
          {
-            variables.put(field.getName(), value.toString());
+            // Fields without a @Default annotation are skipped. This is not
+            // necessarily a programming error; Groovy adds fields to classes
+            // which will not contain Default annotations.
+            template = slot.defaultTemplate;
          }
-      }
-      catch (IllegalArgumentException e)
-      {
-         e.printStackTrace();
-      }
-      catch (IllegalAccessException e)
-      {
-         e.printStackTrace();
+         values[i] = template == null ? null : template.expand(this);
+         path.remove(path.size() - 1);
+         states[i] = RESOLVED;
+         return values[i];
       }
    }
 
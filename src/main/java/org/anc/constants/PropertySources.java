@@ -0,0 +1,179 @@
+/*-
+ * Copyright 2011 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.constants;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parses properties files for {@link Constants} once per JVM.
+ * <p>
+ * Every Constants subclass reads the same few sources at startup. The parsed
+ * contents of each file and class path resource are cached here and shared by
+ * all of them. A cached file is parsed again if its size or modification time
+ * has changed. Since an edit that keeps the size within one tick of the file
+ * system clock is not detected that way, the cache is bypassed, and then
+ * refreshed, while {@link ReloadableConstants} is loading a new snapshot.
+ * <p>
+ * The Properties objects returned are shared and must not be modified.
+ * 
+ * @author Keith Suderman
+ */
+final class PropertySources
+{
+   private static final Properties EMPTY = new Properties();
+
+   private static final ConcurrentMap<File, Entry> files = new ConcurrentHashMap<File, Entry>();
+   private static final ConcurrentMap<File, Entry> textFiles = new ConcurrentHashMap<File, Entry>();
+   private static final ConcurrentMap<String, Properties> resources = new ConcurrentHashMap<String, Properties>();
+
+   private PropertySources()
+   {
+   }
+
+   /**
+    * Returns the contents of the properties file, which is read as
+    * ISO-8859-1 like {@link Properties#load(InputStream)}.
+    * 
+    * @throws FileNotFoundException if the file does not exist.
+    */
+   static Properties file(File file) throws IOException
+   {
+      return file(file, files, false);
+   }
+
+   /**
+    * Returns the contents of the properties file, which is read with the
+    * platform's default character set like a FileReader.
+    * 
+    * @throws FileNotFoundException if the file does not exist.
+    */
+   static Properties textFile(File file) throws IOException
+   {
+      return file(file, textFiles, true);
+   }
+
+   private static Properties file(File file, ConcurrentMap<File, Entry> cache, boolean text) throws IOException
+   {
+      File key = file.getAbsoluteFile();
+      long modified = key.lastModified();
+      long length = key.length();
+      Entry entry = cache.get(key);
+      if (entry != null && entry.modified == modified && entry.length == length
+            && !Boolean.TRUE.equals(Constants.STRICT.get()))
+      {
+         return entry.properties;
+      }
+      if (!key.isFile())
+      {
+         throw new FileNotFoundException(file.getPath());
+      }
+      Properties properties;
+      if (text)
+      {
+         properties = new Properties();
+         Reader reader = new InputStreamReader(new FileInputStream(key), Charset.defaultCharset());
+         try
+         {
+            properties.load(reader);
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+      else
+      {
+         InputStream in = new FileInputStream(key);
+         try
+         {
+            properties = load(in);
+         }
+         finally
+         {
+            in.close();
+         }
+      }
+      cache.put(key, new Entry(modified, length, properties));
+      return properties;
+   }
+
+   /**
+    * Returns the contents of the properties file on the class path, or an
+    * empty Properties object if there is no such resource.
+    */
+   static Properties resource(String name) throws IOException
+   {
+      ClassLoader loader = Thread.currentThread().getContextClassLoader();
+      if (loader == null)
+      {
+         loader = Constants.class.getClassLoader();
+      }
+      URL url = loader.getResource(name);
+      if (url == null)
+      {
+         return EMPTY;
+      }
+      String key = url.toExternalForm();
+      Properties properties = resources.get(key);
+      if (properties == null)
+      {
+         InputStream in = url.openStream();
+         try
+         {
+            properties = load(in);
+         }
+         finally
+         {
+            in.close();
+         }
+         resources.put(key, properties);
+      }
+      return properties;
+   }
+
+   private static Properties load(InputStream in) throws IOException
+   {
+      Properties properties = new Properties();
+      properties.load(in);
+      return properties;
+   }
+
+   private static class Entry
+   {
+      final long modified;
+      final long length;
+      final Properties properties;
+
+      Entry(long modified, long length, Properties properties)
+      {
+         this.modified = modified;
+         this.length = length;
+         this.properties = properties;
+      }
+   }
+}
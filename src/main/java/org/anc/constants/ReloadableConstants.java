@@ -0,0 +1,272 @@
+/*-
+ * Copyright 2011 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.constants;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the current snapshot of a {@link Constants} subclass and replaces it
+ * when one of the properties files it was loaded from changes.
+ * <p>
+ * Since the fields of a Constants object are final, every instance is an
+ * immutable snapshot. A background thread watches all of the snapshot's
+ * {@link Constants#getSources() source} files and, when one is modified,
+ * waits for it to stop changing, creates a new instance off the caller's
+ * thread and publishes it with a single volatile write. Readers only pay for
+ * a volatile read:
+ * 
+ * <pre>
+ * static final ReloadableConstants&lt;MyConstants&gt; CONST = 
+ *       new ReloadableConstants&lt;MyConstants&gt;(MyConstants.class);
+ * 
+ * int n = CONST.get().NTHREADS;
+ * </pre>
+ * <p>
+ * Code that reads several related values should call {@link #get()} once and
+ * use the same snapshot for all of them. If the new instance can not be
+ * created the current snapshot is kept. Unlike the constructor of a Constants
+ * class, which falls back to the &#064;Default values, a reload fails if a
+ * properties file can not be read, is empty, or a file the current snapshot
+ * was loaded from no longer exists; a value that can not be converted to the
+ * field's type also fails the reload. Constants that were not loaded from a
+ * file are never reloaded.
+ * <p>
+ * The subclass must have a no-argument constructor.
+ * 
+ * @author Keith Suderman
+ */
+public class ReloadableConstants<T extends Constants>
+{
+   /** How long a changed file must stay unchanged before it is reloaded. */
+   private static final long SETTLE_MILLIS = 100;
+
+   private final Constructor<T> constructor;
+   private volatile T current;
+   private final Set<Path> files = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+   private final Set<Path> directories = new HashSet<Path>();
+   private WatchService watcher = null;
+   private Thread thread = null;
+   private boolean closed = false;
+
+   public ReloadableConstants(Class<T> type) throws IOException
+   {
+      try
+      {
+         constructor = type.getDeclaredConstructor();
+         constructor.setAccessible(true);
+      }
+      catch (NoSuchMethodException e)
+      {
+         throw new IllegalArgumentException(type.getName() + " does not have a no-argument constructor.", e);
+      }
+      current = newInstance();
+      watch(current.getSources());
+   }
+
+   /** Returns the current snapshot. */
+   public T get()
+   {
+      return current;
+   }
+
+   /**
+    * Loads a new snapshot immediately and makes it the current snapshot.
+    * 
+    * @return The new snapshot.
+    * @throws IOException if the properties can not be loaded. The current
+    *            snapshot is not changed.
+    */
+   public synchronized T reload() throws IOException
+   {
+      T snapshot;
+      Constants.STRICT.set(Boolean.TRUE);
+      try
+      {
+         snapshot = newInstance();
+      }
+      finally
+      {
+         Constants.STRICT.remove();
+      }
+      for (File file : current.getSources())
+      {
+         if (!snapshot.getSources().contains(file))
+         {
+            throw new FileNotFoundException(file.getPath());
+         }
+      }
+      current = snapshot;
+      watch(snapshot.getSources());
+      return snapshot;
+   }
+
+   /** Stops watching the properties files. */
+   public synchronized void close() throws IOException
+   {
+      closed = true;
+      if (watcher != null)
+      {
+         watcher.close();
+         watcher = null;
+      }
+      if (thread != null)
+      {
+         thread.interrupt();
+         thread = null;
+      }
+   }
+
+   private T newInstance() throws IOException
+   {
+      try
+      {
+         return constructor.newInstance();
+      }
+      catch (Exception e)
+      {
+         throw new IOException("Unable to create " + constructor.getDeclaringClass().getName(), e);
+      }
+   }
+
+   /** Starts watching any of the files that are not being watched yet. */
+   private synchronized void watch(List<File> sources) throws IOException
+   {
+      if (closed || sources.isEmpty())
+      {
+         return;
+      }
+      if (watcher == null)
+      {
+         watcher = FileSystems.getDefault().newWatchService();
+         start(watcher);
+      }
+      for (File source : sources)
+      {
+         Path file = source.getAbsoluteFile().toPath().normalize();
+         Path directory = file.getParent();
+         if (directories.add(directory))
+         {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                  StandardWatchEventKinds.ENTRY_MODIFY);
+         }
+         files.add(file);
+      }
+   }
+
+   private void start(final WatchService service)
+   {
+      thread = new Thread(new Runnable() {
+         @Override
+         public void run()
+         {
+            try
+            {
+               while (true)
+               {
+                  WatchKey key = service.take();
+                  Path directory = (Path) key.watchable();
+                  boolean changed = false;
+                  for (WatchEvent<?> event : key.pollEvents())
+                  {
+                     Object context = event.context();
+                     if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                           || (context instanceof Path && files.contains(directory.resolve((Path) context))))
+                     {
+                        changed = true;
+                     }
+                  }
+                  if (!key.reset())
+                  {
+                     return;
+                  }
+                  if (changed)
+                  {
+                     settle();
+                     try
+                     {
+                        reload();
+                     }
+                     catch (Exception e)
+                     {
+                        System.err.println("Unable to reload " + constructor.getDeclaringClass().getName());
+                        e.printStackTrace();
+                     }
+                  }
+               }
+            }
+            catch (InterruptedException e)
+            {
+               // close() was called.
+            }
+            catch (ClosedWatchServiceException e)
+            {
+               // close() was called.
+            }
+         }
+      }, "ReloadableConstants-" + constructor.getDeclaringClass().getSimpleName());
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   /**
+    * Waits until none of the watched files has changed for
+    * {@link #SETTLE_MILLIS}, so a file that is still being written is not
+    * loaded.
+    */
+   private void settle() throws InterruptedException
+   {
+      List<Long> before = stat();
+      while (true)
+      {
+         Thread.sleep(SETTLE_MILLIS);
+         List<Long> after = stat();
+         if (after.equals(before))
+         {
+            return;
+         }
+         before = after;
+      }
+   }
+
+   private List<Long> stat()
+   {
+      List<Long> result = new ArrayList<Long>();
+      for (Path path : files)
+      {
+         File file = path.toFile();
+         result.add(file.length());
+         result.add(file.lastModified());
+      }
+      return result;
+   }
+}
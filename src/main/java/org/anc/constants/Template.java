@@ -0,0 +1,180 @@
+/*-
+ * Copyright 2011 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.constants;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled {@link Constants} value that may contain variable references.
+ * <p>
+ * Two forms of reference are recognized:
+ * <ul>
+ * <li><tt>${name}</tt> where the name runs up to the closing brace.</li>
+ * <li><tt>$name</tt> where the name runs up to the next '/' or the end of the
+ * string. This is the original syntax and is kept for existing properties
+ * files.</li>
+ * </ul>
+ * A name that starts with <tt>env:</tt> refers to an environment variable and
+ * a name that starts with <tt>sys:</tt> refers to a Java system property. All
+ * other names refer to fields of the Constants class. A reference that can
+ * not be resolved is left in the output unchanged.
+ * <p>
+ * The text is scanned once when the template is compiled; expanding the
+ * template only appends the literal pieces and the resolved values to a
+ * single buffer. Compiled templates are cached.
+ * 
+ * @author Keith Suderman
+ */
+final class Template
+{
+   private static final int CACHE_SIZE = 1024;
+   private static final String ENV_PREFIX = "env:";
+   private static final String SYS_PREFIX = "sys:";
+
+   @SuppressWarnings("serial")
+   private static final Map<String, Template> cache = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Template> eldest)
+      {
+         return size() > CACHE_SIZE;
+      }
+   };
+
+   /** Resolves references to fields of the Constants class. */
+   interface Resolver
+   {
+      /** Returns the value of the field, or null if there is no such field. */
+      String resolve(String name);
+   }
+
+   private final String text;
+   /** There is always one more literal than there are references. */
+   private final String[] literals;
+   private final String[] names;
+   /** The original text of each reference, used when it can't be resolved. */
+   private final String[] sources;
+
+   private Template(String text, List<String> literals, List<String> names, List<String> sources)
+   {
+      this.text = text;
+      this.literals = literals.toArray(new String[literals.size()]);
+      this.names = names.toArray(new String[names.size()]);
+      this.sources = sources.toArray(new String[sources.size()]);
+   }
+
+   static Template compile(String text)
+   {
+      synchronized (cache)
+      {
+         Template template = cache.get(text);
+         if (template == null)
+         {
+            template = parse(text);
+            cache.put(text, template);
+         }
+         return template;
+      }
+   }
+
+   private static Template parse(String text)
+   {
+      List<String> literals = new ArrayList<String>();
+      List<String> names = new ArrayList<String>();
+      List<String> sources = new ArrayList<String>();
+      int length = text.length();
+      int start = 0;
+      int index = text.indexOf('$');
+      while (index >= 0)
+      {
+         int nameStart;
+         int nameEnd;
+         int end;
+         if (index + 1 < length && text.charAt(index + 1) == '{')
+         {
+            nameStart = index + 2;
+            nameEnd = text.indexOf('}', nameStart);
+            if (nameEnd < 0)
+            {
+               break;
+            }
+            end = nameEnd + 1;
+         }
+         else
+         {
+            nameStart = index + 1;
+            nameEnd = text.indexOf('/', nameStart);
+            if (nameEnd < 0)
+            {
+               nameEnd = length;
+            }
+            end = nameEnd;
+         }
+         literals.add(text.substring(start, index));
+         names.add(text.substring(nameStart, nameEnd));
+         sources.add(text.substring(index, end));
+         start = end;
+         index = text.indexOf('$', end);
+      }
+      literals.add(text.substring(start));
+      return new Template(text, literals, names, sources);
+   }
+
+   /** Returns true if the template does not contain any references. */
+   boolean isConstant()
+   {
+      return names.length == 0;
+   }
+
+   String expand(Resolver resolver)
+   {
+      if (names.length == 0)
+      {
+         return text;
+      }
+      StringBuilder buffer = new StringBuilder(text.length() + 64);
+      for (int i = 0; i < names.length; ++i)
+      {
+         buffer.append(literals[i]);
+         String name = names[i];
+         String value;
+         if (name.startsWith(ENV_PREFIX))
+         {
+            value = System.getenv(name.substring(ENV_PREFIX.length()));
+         }
+         else if (name.startsWith(SYS_PREFIX))
+         {
+            value = System.getProperty(name.substring(SYS_PREFIX.length()));
+         }
+         else
+         {
+            value = resolver.resolve(name);
+         }
+         buffer.append(value == null ? sources[i] : value);
+      }
+      buffer.append(literals[names.length]);
+      return buffer.toString();
+   }
+
+   @Override
+   public String toString()
+   {
+      return text;
+   }
+}
@@ -18,6 +18,7 @@ package org.anc.io;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * Filter for ANC header files.
@@ -26,7 +27,7 @@ import java.io.FileFilter;
  * @version 1.0
  */
 @Deprecated
-public class ANCFileFilter implements FileFilter
+public class ANCFileFilter implements FileFilter, IPathFilter
 {
    protected boolean acceptDirectories = true;
 
@@ -48,4 +49,17 @@ public class ANCFileFilter implements FileFilter
       }
       return pathname.getName().endsWith(".anc");
    }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      // Directories are accepted if and only if acceptDirectories is set, so the
+      // attributes are only needed when the name alone does not decide.
+      boolean matches = path.getFileName().toString().endsWith(".anc");
+      if (matches == acceptDirectories)
+      {
+         return matches;
+      }
+      return attributes.isDirectory() == acceptDirectories;
+   }
 }
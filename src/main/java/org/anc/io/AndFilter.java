@@ -0,0 +1,66 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Accepts a file only if every one of its filters accepts the file. The
+ * filters are tested in order and testing stops at the first filter that
+ * rejects the file, so the cheapest filters should be listed first.
+ * 
+ * <pre>
+ * new AndFilter(new PrefixFilter("sw"), new SuffixFilter("-ptb.xml"))
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class AndFilter extends CompositeFilter
+{
+   public AndFilter(FileFilter... filters)
+   {
+      super(filters);
+   }
+
+   @Override
+   public boolean accept(File file)
+   {
+      for (FileFilter filter : filters)
+      {
+         if (!filter.accept(file))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      for (FileFilter filter : filters)
+      {
+         if (!accept(filter, path, attributes))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+}
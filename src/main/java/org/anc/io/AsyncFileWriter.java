@@ -0,0 +1,399 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Asynchronous, write-behind version of {@link FileUtils#write(File, String)}.
+ * <p>
+ * Producers hand the content of a file to the writer and carry on while a pool
+ * of I/O threads opens, writes and closes the files. The queue between the
+ * producers and the I/O threads is bounded; when it is full
+ * {@link #write(File, String) write} blocks until there is room, so a fast
+ * producer can not exhaust the heap.
+ * <p>
+ * If a sync batch size is given, the I/O threads keep written files open and
+ * <code>fsync</code> them in groups of that size (or whenever the queue runs
+ * dry) before closing them. The {@link Future} returned for a file completes
+ * only once the file is on disk.
+ * 
+ * <pre>
+ * AsyncFileWriter writer = new AsyncFileWriter();
+ * try
+ * {
+ *    for (Document doc : documents)
+ *    {
+ *       writer.write(new File(out, doc.getId() + ".txt"), doc.getText());
+ *    }
+ *    writer.flush();
+ * }
+ * finally
+ * {
+ *    writer.close();
+ * }
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class AsyncFileWriter implements Closeable
+{
+   public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+   private static final Charset UTF8 = Charset.forName(UTF8Writer.ENCODING);
+
+   /** Placed on the queue once per thread to shut the threads down. */
+   private static final Request SHUTDOWN = new Request(null, null);
+
+   private final BlockingQueue<Request> queue;
+   private final Thread[] threads;
+   private final int syncBatchSize;
+
+   /** Number of requests that have been submitted but not completed. */
+   private int pending = 0;
+   /** Number of requests that are still being placed on the queue. */
+   private int submitting = 0;
+   private final Object lock = new Object();
+   private boolean closed = false;
+
+   /**
+    * Creates a writer with one I/O thread per processor, the default queue
+    * size and no fsync.
+    */
+   public AsyncFileWriter()
+   {
+      this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_SIZE, 0);
+   }
+
+   public AsyncFileWriter(int nThreads, int queueSize)
+   {
+      this(nThreads, queueSize, 0);
+   }
+
+   /**
+    * @param nThreads
+    *           The number of I/O threads.
+    * @param queueSize
+    *           The maximum number of files waiting to be written.
+    * @param syncBatchSize
+    *           The number of files each thread fsyncs together. Zero disables
+    *           fsync.
+    */
+   public AsyncFileWriter(int nThreads, int queueSize, int syncBatchSize)
+   {
+      if (nThreads < 1 || queueSize < 1 || syncBatchSize < 0)
+      {
+         throw new IllegalArgumentException("Invalid AsyncFileWriter settings.");
+      }
+      this.queue = new ArrayBlockingQueue<Request>(queueSize);
+      this.syncBatchSize = syncBatchSize;
+      this.threads = new Thread[nThreads];
+      for (int i = 0; i < nThreads; ++i)
+      {
+         threads[i] = new Thread(new Worker(), "AsyncFileWriter-" + i);
+         threads[i].setDaemon(true);
+         threads[i].start();
+      }
+   }
+
+   /** Queues the String to be written to the file using UTF-8. */
+   public Future<File> write(String path, String string) throws InterruptedException
+   {
+      return write(new File(path), string);
+   }
+
+   /**
+    * Queues the String to be written to the file using UTF-8. Blocks if the
+    * queue is full.
+    * 
+    * @return A Future that completes when the file has been written (and
+    *         synced if a sync batch size was given). Any exception raised
+    *         while writing the file is reported through the Future.
+    */
+   public Future<File> write(File file, String string) throws InterruptedException
+   {
+      if (file == null || string == null)
+      {
+         throw new IllegalArgumentException("The file and the string to write can not be null.");
+      }
+      Request request = new Request(file, string);
+      synchronized (lock)
+      {
+         if (closed)
+         {
+            throw new IllegalStateException("The AsyncFileWriter has been closed.");
+         }
+         ++pending;
+         ++submitting;
+      }
+      boolean queued = false;
+      try
+      {
+         queue.put(request);
+         queued = true;
+      }
+      finally
+      {
+         synchronized (lock)
+         {
+            --submitting;
+            if (!queued)
+            {
+               --pending;
+            }
+            lock.notifyAll();
+         }
+      }
+      return request;
+   }
+
+   /** Waits until every file queued so far has been written. */
+   public void flush() throws InterruptedException
+   {
+      synchronized (lock)
+      {
+         while (pending > 0)
+         {
+            lock.wait();
+         }
+      }
+   }
+
+   /**
+    * Writes any queued files and stops the I/O threads. Queuing files after the
+    * writer has been closed throws an IllegalStateException.
+    */
+   @Override
+   public void close() throws IOException
+   {
+      try
+      {
+         synchronized (lock)
+         {
+            if (closed)
+            {
+               return;
+            }
+            closed = true;
+            // Requests that passed the closed check must be queued before the
+            // shutdown markers or they would never be written.
+            while (submitting > 0)
+            {
+               lock.wait();
+            }
+         }
+         for (int i = 0; i < threads.length; ++i)
+         {
+            queue.put(SHUTDOWN);
+         }
+         for (Thread thread : threads)
+         {
+            thread.join();
+         }
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while closing the AsyncFileWriter.", e);
+      }
+   }
+
+   private void finished()
+   {
+      synchronized (lock)
+      {
+         --pending;
+         lock.notifyAll();
+      }
+   }
+
+   class Worker implements Runnable
+   {
+      /** Files that have been written but not yet synced and closed. */
+      private final List<Request> unsynced = new ArrayList<Request>();
+
+      @Override
+      public void run()
+      {
+         while (true)
+         {
+            Request request;
+            try
+            {
+               request = unsynced.isEmpty() ? queue.take() : queue.poll();
+            }
+            catch (InterruptedException e)
+            {
+               return;
+            }
+            if (request == null)
+            {
+               // Nothing else to do so sync what we have.
+               sync();
+               continue;
+            }
+            if (request == SHUTDOWN)
+            {
+               sync();
+               return;
+            }
+            write(request);
+         }
+      }
+
+      private void write(Request request)
+      {
+         try
+         {
+            request.out = new FileOutputStream(request.file);
+            request.out.write(request.content.getBytes(UTF8));
+            request.content = null;
+            if (syncBatchSize > 0)
+            {
+               unsynced.add(request);
+               if (unsynced.size() >= syncBatchSize)
+               {
+                  sync();
+               }
+               return;
+            }
+            request.out.close();
+            complete(request, null);
+         }
+         catch (Exception e)
+         {
+            // Runtime exceptions fail this request only; the thread must
+            // survive to serve the others.
+            closeQuietly(request);
+            complete(request, e);
+         }
+      }
+
+      private void sync()
+      {
+         for (Request request : unsynced)
+         {
+            try
+            {
+               request.out.getFD().sync();
+               request.out.close();
+               complete(request, null);
+            }
+            catch (Exception e)
+            {
+               closeQuietly(request);
+               complete(request, e);
+            }
+         }
+         unsynced.clear();
+      }
+
+      private void closeQuietly(Request request)
+      {
+         if (request.out != null) try
+         {
+            request.out.close();
+         }
+         catch (IOException e)
+         {
+            // The original exception is reported to the caller.
+         }
+      }
+
+      private void complete(Request request, Exception error)
+      {
+         request.out = null;
+         request.error = error;
+         request.done.countDown();
+         finished();
+      }
+   }
+
+   static class Request implements Future<File>
+   {
+      final File file;
+      String content;
+      FileOutputStream out;
+      volatile Exception error;
+      final CountDownLatch done = new CountDownLatch(1);
+
+      Request(File file, String content)
+      {
+         this.file = file;
+         this.content = content;
+      }
+
+      /** Files can not be un-written, so cancel is not supported. */
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+         return false;
+      }
+
+      @Override
+      public boolean isCancelled()
+      {
+         return false;
+      }
+
+      @Override
+      public boolean isDone()
+      {
+         return done.getCount() == 0;
+      }
+
+      @Override
+      public File get() throws InterruptedException, ExecutionException
+      {
+         done.await();
+         return result();
+      }
+
+      @Override
+      public File get(long timeout, TimeUnit unit) throws InterruptedException,
+            ExecutionException, TimeoutException
+      {
+         if (!done.await(timeout, unit))
+         {
+            throw new TimeoutException("Timed out waiting for " + file.getPath());
+         }
+         return result();
+      }
+
+      private File result() throws ExecutionException
+      {
+         if (error != null)
+         {
+            throw new ExecutionException("Unable to write " + file.getPath(), error);
+         }
+         return file;
+      }
+   }
+}
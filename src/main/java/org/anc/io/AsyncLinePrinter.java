@@ -0,0 +1,244 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link BufferedLinePrinter} that hands filled buffers to a background
+ * thread which writes them to the sink, so the printing thread never waits on
+ * I/O unless all of the buffers are in flight.
+ * <p>
+ * {@link #flush()} queues a flush request for the writer thread and returns
+ * immediately; {@link #close()} waits until everything has been written.
+ * Anything thrown by the sink is reported by {@link #checkError()}; output
+ * printed after the printer is closed is discarded.
+ * 
+ * @author Keith Suderman
+ */
+class AsyncLinePrinter extends BufferedLinePrinter
+{
+   private static final int NBUFFERS = 4;
+   /** How often a blocked printing thread checks the writer is still alive. */
+   private static final long POLL_MILLIS = 100;
+
+   /** Sent to the writer thread to request a flush of the sink. */
+   private static final Chunk FLUSH = new Chunk(null, 0);
+   /** Sent to the writer thread to request the sink be closed. */
+   private static final Chunk CLOSE = new Chunk(null, 0);
+
+   private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<Chunk>(NBUFFERS + 2);
+   private final BlockingQueue<char[]> empty = new ArrayBlockingQueue<char[]>(NBUFFERS);
+   private final Thread writer;
+   private volatile Throwable writerError = null;
+   private boolean closed = false;
+
+   public AsyncLinePrinter(Writer sink, int bufferSize, long flushMillis)
+   {
+      super(sink, bufferSize, flushMillis);
+      for (int i = 1; i < NBUFFERS; ++i)
+      {
+         empty.add(new char[bufferSize]);
+      }
+      writer = new Thread(new Runnable() {
+         @Override
+         public void run()
+         {
+            write();
+         }
+      }, "AsyncLinePrinter");
+      writer.setDaemon(true);
+      writer.start();
+   }
+
+   @Override
+   public void close()
+   {
+      if (closed)
+      {
+         return;
+      }
+      drain();
+      send(CLOSE);
+      closed = true;
+      try
+      {
+         writer.join();
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   @Override
+   public boolean checkError()
+   {
+      return error != null || writerError != null;
+   }
+
+   /**
+    * Hands the current buffer to the writer thread and takes an empty one.
+    * Once the printer has been closed, or the writer thread has died, the
+    * buffered characters are discarded and an error is recorded instead.
+    */
+   @Override
+   protected void drain()
+   {
+      if (length == 0)
+      {
+         return;
+      }
+      if (!send(new Chunk(buffer, length)))
+      {
+         length = 0;
+         return;
+      }
+      length = 0;
+      try
+      {
+         char[] next = null;
+         while (next == null)
+         {
+            next = empty.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (next == null && !writer.isAlive())
+            {
+               dead();
+               next = new char[buffer.length];
+            }
+         }
+         buffer = next;
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         buffer = new char[buffer.length];
+      }
+   }
+
+   @Override
+   protected void flushSink()
+   {
+      send(FLUSH);
+   }
+
+   /**
+    * Queues a chunk for the writer thread. Returns false, without blocking,
+    * if the printer is closed or the writer thread is no longer running.
+    */
+   private boolean send(Chunk chunk)
+   {
+      if (closed)
+      {
+         if (error == null)
+         {
+            error = new IOException("The printer has been closed.");
+         }
+         return false;
+      }
+      try
+      {
+         while (!full.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS))
+         {
+            if (!writer.isAlive())
+            {
+               dead();
+               return false;
+            }
+         }
+         return true;
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         return false;
+      }
+   }
+
+   private void dead()
+   {
+      if (writerError == null)
+      {
+         writerError = new IOException("The writer thread has terminated.");
+      }
+   }
+
+   /**
+    * The body of the writer thread. Anything thrown by the sink is recorded
+    * so that the thread keeps returning buffers to the printing thread.
+    */
+   private void write()
+   {
+      while (true)
+      {
+         Chunk chunk;
+         try
+         {
+            chunk = full.take();
+         }
+         catch (InterruptedException e)
+         {
+            return;
+         }
+         try
+         {
+            if (chunk == CLOSE)
+            {
+               sink.close();
+               return;
+            }
+            if (chunk == FLUSH)
+            {
+               sink.flush();
+               continue;
+            }
+            sink.write(chunk.chars, 0, chunk.length);
+         }
+         catch (Throwable e)
+         {
+            writerError = e;
+            if (chunk == CLOSE)
+            {
+               return;
+            }
+         }
+         finally
+         {
+            if (chunk.chars != null)
+            {
+               empty.offer(chunk.chars);
+            }
+         }
+      }
+   }
+
+   static class Chunk
+   {
+      final char[] chars;
+      final int length;
+
+      Chunk(char[] chars, int length)
+      {
+         this.chars = chars;
+         this.length = length;
+      }
+   }
+}
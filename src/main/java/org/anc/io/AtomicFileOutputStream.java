@@ -0,0 +1,207 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Checksum;
+
+/**
+ * An OutputStream that writes to a temporary file in the same directory as
+ * the target file and renames it into place when {@link #commit()} is called.
+ * <p>
+ * Readers of the target file see either the old contents or the new
+ * contents, never a partially written file. Closing the stream without
+ * calling <code>commit()</code> discards the temporary file and leaves the
+ * target untouched, so the usual idiom is:
+ * 
+ * <pre>
+ * AtomicFileOutputStream out = new AtomicFileOutputStream(file);
+ * try
+ * {
+ *    out.write(bytes);
+ *    out.commit();
+ * }
+ * finally
+ * {
+ *    out.close();
+ * }
+ * </pre>
+ * <p>
+ * If a {@link Checksum} is provided it is updated with every byte as it is
+ * written, so the checksum of the file is available without reading the file
+ * a second time.
+ * 
+ * @author Keith Suderman
+ */
+public class AtomicFileOutputStream extends OutputStream
+{
+   private static final int BUFFER_SIZE = 8192;
+
+   private final File target;
+   private final File temp;
+   private final FileOutputStream file;
+   private final OutputStream out;
+   private final Checksum checksum;
+   private final boolean sync;
+   private boolean committed = false;
+   private boolean closed = false;
+
+   public AtomicFileOutputStream(File target) throws IOException
+   {
+      this(target, null, false);
+   }
+
+   public AtomicFileOutputStream(File target, Checksum checksum) throws IOException
+   {
+      this(target, checksum, false);
+   }
+
+   /**
+    * @param target
+    *           The file that will be replaced when the stream is committed.
+    * @param checksum
+    *           Updated with every byte written. May be <code>null</code>.
+    * @param sync
+    *           If <code>true</code> the temporary file is flushed to disk
+    *           before it is renamed.
+    */
+   public AtomicFileOutputStream(File target, Checksum checksum, boolean sync)
+         throws IOException
+   {
+      this.target = target;
+      this.checksum = checksum;
+      this.sync = sync;
+      File directory = target.getAbsoluteFile().getParentFile();
+      String prefix = target.getName();
+      if (prefix.length() < 3)
+      {
+         prefix = prefix + "___";
+      }
+      this.temp = File.createTempFile(prefix, ".tmp", directory);
+      this.file = new FileOutputStream(temp);
+      this.out = new BufferedOutputStream(file, BUFFER_SIZE);
+   }
+
+   @Override
+   public void write(int b) throws IOException
+   {
+      out.write(b);
+      if (checksum != null)
+      {
+         checksum.update(b);
+      }
+   }
+
+   @Override
+   public void write(byte[] b, int off, int len) throws IOException
+   {
+      out.write(b, off, len);
+      if (checksum != null)
+      {
+         checksum.update(b, off, len);
+      }
+   }
+
+   @Override
+   public void flush() throws IOException
+   {
+      out.flush();
+   }
+
+   /**
+    * Closes the temporary file and renames it to the target file.
+    * 
+    * @return The value of the checksum, or zero if no checksum is being
+    *         computed.
+    */
+   public long commit() throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("The stream has already been closed.");
+      }
+      out.flush();
+      if (sync)
+      {
+         file.getFD().sync();
+      }
+      closed = true;
+      out.close();
+      try
+      {
+         try
+         {
+            Files.move(temp.toPath(), target.toPath(),
+                  StandardCopyOption.ATOMIC_MOVE,
+                  StandardCopyOption.REPLACE_EXISTING);
+         }
+         catch (AtomicMoveNotSupportedException e)
+         {
+            Files.move(temp.toPath(), target.toPath(),
+                  StandardCopyOption.REPLACE_EXISTING);
+         }
+      }
+      catch (IOException e)
+      {
+         temp.delete();
+         throw e;
+      }
+      committed = true;
+      return getChecksum();
+   }
+
+   /** Returns the current value of the checksum, or zero if there is none. */
+   public long getChecksum()
+   {
+      return checksum == null ? 0 : checksum.getValue();
+   }
+
+   /** Returns <code>true</code> if the target file has been replaced. */
+   public boolean isCommitted()
+   {
+      return committed;
+   }
+
+   /**
+    * Closes the stream. If {@link #commit()} has not been called the temporary
+    * file is deleted and the target file is not modified.
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (closed)
+      {
+         return;
+      }
+      closed = true;
+      try
+      {
+         out.close();
+      }
+      finally
+      {
+         temp.delete();
+      }
+   }
+}
@@ -0,0 +1,238 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * An ILinePrinter that collects output in a reusable character buffer and
+ * only passes it to the sink when the buffer is full, when the flush interval
+ * has elapsed at the end of a line, or when {@link #flush()} is called.
+ * There is no timer: the interval is only checked by println, so output
+ * printed before the printer goes idle stays buffered until the next line,
+ * flush or close.
+ * <p>
+ * Like a PrintStream, I/O errors do not throw exceptions; use
+ * {@link #checkError()} to test for them.
+ * 
+ * @author Keith Suderman
+ */
+class BufferedLinePrinter implements ILinePrinter
+{
+   private static final String EOL = System.getProperty("line.separator");
+
+   protected final Writer sink;
+   protected char[] buffer;
+   protected int length = 0;
+   /** Nanoseconds between flushes, or zero to flush by size only. */
+   private final long flushInterval;
+   private long lastFlush = System.nanoTime();
+   protected IOException error = null;
+
+   /**
+    * @param sink
+    *           Where the output is written.
+    * @param bufferSize
+    *           The number of characters buffered before they are written to
+    *           the sink.
+    * @param flushMillis
+    *           The maximum time in milliseconds that a complete line will be
+    *           held in the buffer, checked when the next line is printed.
+    *           Zero flushes by size only.
+    */
+   public BufferedLinePrinter(Writer sink, int bufferSize, long flushMillis)
+   {
+      if (bufferSize < 1)
+      {
+         throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+      }
+      this.sink = sink;
+      this.buffer = new char[bufferSize];
+      this.flushInterval = flushMillis * 1000000L;
+   }
+
+   @Override
+   public void println()
+   {
+      append(EOL);
+      endOfLine();
+   }
+
+   @Override
+   public void println(Object object)
+   {
+      append(String.valueOf(object));
+      println();
+   }
+
+   @Override
+   public void println(String s)
+   {
+      append(String.valueOf(s));
+      println();
+   }
+
+   @Override
+   public void println(char[] ch)
+   {
+      append(ch, 0, ch.length);
+      println();
+   }
+
+   @Override
+   public void println(char c)
+   {
+      print(c);
+      println();
+   }
+
+   @Override
+   public void print(Object object)
+   {
+      append(String.valueOf(object));
+   }
+
+   @Override
+   public void print(String s)
+   {
+      append(String.valueOf(s));
+   }
+
+   @Override
+   public void print(char[] ch)
+   {
+      append(ch, 0, ch.length);
+   }
+
+   @Override
+   public void print(char c)
+   {
+      if (length == buffer.length)
+      {
+         drain();
+      }
+      buffer[length++] = c;
+   }
+
+   /** Writes the buffer to the sink and flushes the sink. */
+   @Override
+   public void flush()
+   {
+      drain();
+      flushSink();
+      lastFlush = System.nanoTime();
+   }
+
+   @Override
+   public void close()
+   {
+      drain();
+      closeSink();
+   }
+
+   /** Returns true if an I/O error has occurred. */
+   @Override
+   public boolean checkError()
+   {
+      return error != null;
+   }
+
+   protected void append(String s)
+   {
+      int offset = 0;
+      int remaining = s.length();
+      while (remaining > 0)
+      {
+         if (length == buffer.length)
+         {
+            drain();
+         }
+         int n = Math.min(remaining, buffer.length - length);
+         s.getChars(offset, offset + n, buffer, length);
+         length += n;
+         offset += n;
+         remaining -= n;
+      }
+   }
+
+   protected void append(char[] ch, int offset, int remaining)
+   {
+      while (remaining > 0)
+      {
+         if (length == buffer.length)
+         {
+            drain();
+         }
+         int n = Math.min(remaining, buffer.length - length);
+         System.arraycopy(ch, offset, buffer, length, n);
+         length += n;
+         offset += n;
+         remaining -= n;
+      }
+   }
+
+   private void endOfLine()
+   {
+      if (flushInterval > 0 && System.nanoTime() - lastFlush >= flushInterval)
+      {
+         flush();
+      }
+   }
+
+   /** Passes the buffered characters to the sink. */
+   protected void drain()
+   {
+      if (length == 0)
+      {
+         return;
+      }
+      try
+      {
+         sink.write(buffer, 0, length);
+      }
+      catch (IOException e)
+      {
+         error = e;
+      }
+      length = 0;
+   }
+
+   protected void flushSink()
+   {
+      try
+      {
+         sink.flush();
+      }
+      catch (IOException e)
+      {
+         error = e;
+      }
+   }
+
+   protected void closeSink()
+   {
+      try
+      {
+         sink.close();
+      }
+      catch (IOException e)
+      {
+         error = e;
+      }
+   }
+}
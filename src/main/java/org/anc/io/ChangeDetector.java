@@ -0,0 +1,369 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects which files in a directory tree have been added, modified or
+ * deleted since the last run.
+ * <p>
+ * The detector keeps a manifest of the path, size, modification time and
+ * content hash of every file it has seen. New files and files whose size
+ * changed are recorded without reading them, and unchanged files cost one
+ * attribute lookup. A file is only hashed when its modification time changed
+ * but its size did not. From then on, a file whose timestamp changes but
+ * whose content is the same as the last time it was hashed is not reported as
+ * modified. A manifest stored inside the scanned tree is never tracked.
+ * <p>
+ * {@link #scan()} does not modify the manifest; call {@link #save()} once the
+ * changed files have been processed so an aborted run is retried.
+ * 
+ * <pre>
+ * ChangeDetector detector = new ChangeDetector(corpus, new SuffixFilter(".xml"), manifest);
+ * ChangeDetector.Changes changes = detector.scan();
+ * for (File file : changes.getModified())
+ * {
+ *    process(file);
+ * }
+ * detector.save();
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class ChangeDetector
+{
+   public static final String ALGORITHM = "SHA-1";
+
+   private static final String HEADER = "# ChangeDetector manifest: path size mtime hash";
+   /** Written in place of the hash of a file that has not been hashed. */
+   private static final String NO_HASH = "-";
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   protected File root;
+   protected FileFilter filter;
+   protected File manifest;
+
+   /** The entries read from the manifest, keyed by relative path. */
+   private Map<String, Entry> previous = null;
+   /** The entries found by the last scan. */
+   private Map<String, Entry> current = null;
+
+   public ChangeDetector(File root, File manifest) throws IOException
+   {
+      this(root, null, manifest);
+   }
+
+   /**
+    * @param root
+    *           The directory to scan. Sub-directories are scanned recursively.
+    * @param filter
+    *           Selects the files to track. The filter is only applied to
+    *           files, all sub-directories are visited. May be
+    *           <code>null</code>.
+    * @param manifest
+    *           The file used to store the state between runs.
+    */
+   public ChangeDetector(File root, FileFilter filter, File manifest)
+         throws IOException
+   {
+      if (!root.isDirectory())
+      {
+         throw new IOException(root.getPath() + " is not a directory.");
+      }
+      this.root = root;
+      this.filter = filter;
+      this.manifest = manifest;
+   }
+
+   /**
+    * Walks the directory tree and compares it with the manifest.
+    */
+   public Changes scan() throws IOException
+   {
+      if (previous == null)
+      {
+         previous = load();
+      }
+      final Map<String, Entry> found = new HashMap<String, Entry>();
+      final Changes changes = new Changes();
+      final java.nio.file.Path rootPath = root.toPath();
+      final java.nio.file.Path manifestPath = manifest.toPath().toAbsolutePath().normalize();
+      Files.walkFileTree(rootPath, new SimpleFileVisitor<java.nio.file.Path>() {
+         @Override
+         public FileVisitResult visitFile(java.nio.file.Path path,
+               BasicFileAttributes attributes) throws IOException
+         {
+            if (!attributes.isRegularFile()
+                  || path.toAbsolutePath().normalize().equals(manifestPath))
+            {
+               return FileVisitResult.CONTINUE;
+            }
+            if (filter != null && !CompositeFilter.accept(filter, path, attributes))
+            {
+               return FileVisitResult.CONTINUE;
+            }
+            String key = relativize(rootPath, path);
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            Entry old = previous.get(key);
+            Entry entry;
+            if (old == null)
+            {
+               entry = new Entry(key, size, modified, null);
+               changes.added.add(path.toFile());
+            }
+            else if (old.size == size && old.modified == modified)
+            {
+               entry = old;
+            }
+            else if (old.size != size)
+            {
+               // The content must have changed, no need to read it.
+               entry = new Entry(key, size, modified, null);
+               changes.modified.add(path.toFile());
+            }
+            else
+            {
+               // Only the timestamp changed; compare the content. A file that
+               // has never been hashed has nothing to compare with.
+               entry = new Entry(key, size, modified, hash(path));
+               if (old.hash == null || !entry.hash.equals(old.hash))
+               {
+                  changes.modified.add(path.toFile());
+               }
+            }
+            found.put(key, entry);
+            return FileVisitResult.CONTINUE;
+         }
+      });
+      for (String key : previous.keySet())
+      {
+         if (!found.containsKey(key))
+         {
+            changes.deleted.add(new File(root, key));
+         }
+      }
+      current = found;
+      return changes;
+   }
+
+   /**
+    * Writes the state recorded by the last call to {@link #scan()} to the
+    * manifest. The manifest is replaced atomically.
+    */
+   public void save() throws IOException
+   {
+      if (current == null)
+      {
+         throw new IllegalStateException("scan() has not been called.");
+      }
+      File parent = manifest.getAbsoluteFile().getParentFile();
+      if (!parent.exists() && !parent.mkdirs())
+      {
+         throw new IOException("Unable to create " + parent.getPath());
+      }
+      AtomicFileOutputStream out = new AtomicFileOutputStream(manifest);
+      PrintWriter writer = new PrintWriter(new UTF8Writer(out));
+      try
+      {
+         writer.println(HEADER);
+         for (Entry entry : current.values())
+         {
+            writer.print(entry.path);
+            writer.print('\t');
+            writer.print(entry.size);
+            writer.print('\t');
+            writer.print(entry.modified);
+            writer.print('\t');
+            writer.println(entry.hash == null ? NO_HASH : entry.hash);
+         }
+         writer.flush();
+         if (writer.checkError())
+         {
+            throw new IOException("Unable to write " + manifest.getPath());
+         }
+         out.commit();
+      }
+      finally
+      {
+         writer.close();
+      }
+      previous = current;
+   }
+
+   protected Map<String, Entry> load() throws IOException
+   {
+      Map<String, Entry> entries = new HashMap<String, Entry>();
+      if (!manifest.exists())
+      {
+         return entries;
+      }
+      BufferedReader reader = new BufferedReader(new UTF8Reader(manifest));
+      try
+      {
+         String line = reader.readLine();
+         while (line != null)
+         {
+            if (line.length() > 0 && !line.startsWith("#"))
+            {
+               Entry entry = parse(line);
+               entries.put(entry.path, entry);
+            }
+            line = reader.readLine();
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+      return entries;
+   }
+
+   /**
+    * Parses a manifest line. The path is the first field and may itself
+    * contain tabs, so the fields are located from the end of the line.
+    */
+   private Entry parse(String line) throws IOException
+   {
+      int hashStart = line.lastIndexOf('\t');
+      int modifiedStart = hashStart > 0 ? line.lastIndexOf('\t', hashStart - 1) : -1;
+      int sizeStart = modifiedStart > 0 ? line.lastIndexOf('\t', modifiedStart - 1) : -1;
+      if (sizeStart < 0)
+      {
+         throw new IOException("Malformed manifest line: " + line);
+      }
+      try
+      {
+         String hash = line.substring(hashStart + 1);
+         return new Entry(line.substring(0, sizeStart),
+               Long.parseLong(line.substring(sizeStart + 1, modifiedStart)),
+               Long.parseLong(line.substring(modifiedStart + 1, hashStart)),
+               NO_HASH.equals(hash) ? null : hash);
+      }
+      catch (NumberFormatException e)
+      {
+         throw new IOException("Malformed manifest line: " + line, e);
+      }
+   }
+
+   private static String relativize(java.nio.file.Path root, java.nio.file.Path path)
+   {
+      String relative = root.relativize(path).toString();
+      if (File.separatorChar != '/')
+      {
+         relative = relative.replace(File.separatorChar, '/');
+      }
+      return relative;
+   }
+
+   /** Computes the hex encoded content hash of the file. */
+   protected static String hash(java.nio.file.Path path) throws IOException
+   {
+      MessageDigest digest;
+      try
+      {
+         digest = MessageDigest.getInstance(ALGORITHM);
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IOException(ALGORITHM + " is not available.", e);
+      }
+      byte[] buffer = new byte[BUFFER_SIZE];
+      InputStream in = new DigestInputStream(Files.newInputStream(path), digest);
+      try
+      {
+         while (in.read(buffer) >= 0)
+         {
+            // The DigestInputStream updates the digest.
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+      byte[] bytes = digest.digest();
+      char[] hex = new char[bytes.length * 2];
+      for (int i = 0; i < bytes.length; ++i)
+      {
+         hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+         hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+      }
+      return new String(hex);
+   }
+
+   static class Entry
+   {
+      final String path;
+      final long size;
+      final long modified;
+      final String hash;
+
+      Entry(String path, long size, long modified, String hash)
+      {
+         this.path = path;
+         this.size = size;
+         this.modified = modified;
+         this.hash = hash;
+      }
+   }
+
+   /** The files that have changed since the manifest was last saved. */
+   public static class Changes
+   {
+      protected final List<File> added = new ArrayList<File>();
+      protected final List<File> modified = new ArrayList<File>();
+      protected final List<File> deleted = new ArrayList<File>();
+
+      public List<File> getAdded()
+      {
+         return Collections.unmodifiableList(added);
+      }
+
+      public List<File> getModified()
+      {
+         return Collections.unmodifiableList(modified);
+      }
+
+      public List<File> getDeleted()
+      {
+         return Collections.unmodifiableList(deleted);
+      }
+
+      public boolean isEmpty()
+      {
+         return added.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+      }
+   }
+}
@@ -0,0 +1,133 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.util.Arrays;
+
+/**
+ * A compact character trie used by the {@link MultiPrefixFilter} and
+ * {@link MultiSuffixFilter} to test a string against any number of prefixes
+ * (or suffixes) in time proportional to the length of the string.
+ * <p>
+ * Suffixes are stored reversed so both kinds of test walk the trie from the
+ * root.
+ * 
+ * @author Keith Suderman
+ */
+class CharTrie
+{
+   private final Node root = new Node();
+
+   /** Adds a string that will be matched against the start of the input. */
+   public void addPrefix(String prefix)
+   {
+      Node node = root;
+      for (int i = 0; i < prefix.length(); ++i)
+      {
+         node = node.child(prefix.charAt(i), true);
+      }
+      node.terminal = true;
+   }
+
+   /** Adds a string that will be matched against the end of the input. */
+   public void addSuffix(String suffix)
+   {
+      Node node = root;
+      for (int i = suffix.length() - 1; i >= 0; --i)
+      {
+         node = node.child(suffix.charAt(i), true);
+      }
+      node.terminal = true;
+   }
+
+   /** Returns true if any of the prefixes is a prefix of s. */
+   public boolean startsWithAny(String s)
+   {
+      Node node = root;
+      int length = s.length();
+      for (int i = 0; !node.terminal; ++i)
+      {
+         if (i == length)
+         {
+            return false;
+         }
+         node = node.child(s.charAt(i), false);
+         if (node == null)
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /** Returns true if any of the suffixes is a suffix of s. */
+   public boolean endsWithAny(String s)
+   {
+      Node node = root;
+      for (int i = s.length() - 1; !node.terminal; --i)
+      {
+         if (i < 0)
+         {
+            return false;
+         }
+         node = node.child(s.charAt(i), false);
+         if (node == null)
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   static class Node
+   {
+      private static final char[] NO_KEYS = new char[0];
+      private static final Node[] NO_CHILDREN = new Node[0];
+
+      /** Sorted so children can be found with a binary search. */
+      char[] keys = NO_KEYS;
+      Node[] children = NO_CHILDREN;
+      boolean terminal = false;
+
+      Node child(char c, boolean create)
+      {
+         int index = Arrays.binarySearch(keys, c);
+         if (index >= 0)
+         {
+            return children[index];
+         }
+         if (!create)
+         {
+            return null;
+         }
+         int insert = -(index + 1);
+         int n = keys.length;
+         char[] newKeys = new char[n + 1];
+         Node[] newChildren = new Node[n + 1];
+         System.arraycopy(keys, 0, newKeys, 0, insert);
+         System.arraycopy(children, 0, newChildren, 0, insert);
+         System.arraycopy(keys, insert, newKeys, insert + 1, n - insert);
+         System.arraycopy(children, insert, newChildren, insert + 1, n - insert);
+         Node node = new Node();
+         newKeys[insert] = c;
+         newChildren[insert] = node;
+         keys = newKeys;
+         children = newChildren;
+         return node;
+      }
+   }
+}
@@ -0,0 +1,129 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.util.Arrays;
+
+/**
+ * A read-only CharSequence backed by a list of character arrays.
+ * <p>
+ * Used to hold very large amounts of text without first copying it into a
+ * single array.
+ * 
+ * @author Keith Suderman
+ */
+public class ChunkedCharSequence implements CharSequence
+{
+   private final char[][] chunks;
+   /** offsets[i] is the index of the first character of chunks[i]. */
+   private final int[] offsets;
+   private final int length;
+
+   public ChunkedCharSequence(char[][] chunks)
+   {
+      this.chunks = chunks;
+      this.offsets = new int[chunks.length];
+      long total = 0;
+      for (int i = 0; i < chunks.length; ++i)
+      {
+         offsets[i] = (int) total;
+         total += chunks[i].length;
+         if (total > Integer.MAX_VALUE)
+         {
+            throw new IllegalArgumentException("Too many characters for a CharSequence.");
+         }
+      }
+      this.length = (int) total;
+   }
+
+   @Override
+   public int length()
+   {
+      return length;
+   }
+
+   @Override
+   public char charAt(int index)
+   {
+      if (index < 0 || index >= length)
+      {
+         throw new IndexOutOfBoundsException("Index: " + index);
+      }
+      int chunk = chunkFor(index);
+      return chunks[chunk][index - offsets[chunk]];
+   }
+
+   @Override
+   public CharSequence subSequence(int start, int end)
+   {
+      if (start < 0 || end > length || start > end)
+      {
+         throw new IndexOutOfBoundsException("start: " + start + " end: " + end);
+      }
+      return new String(getChars(start, end));
+   }
+
+   /** Returns the number of chunks. */
+   public int chunkCount()
+   {
+      return chunks.length;
+   }
+
+   /** Returns a chunk. The array must not be modified. */
+   public char[] chunk(int i)
+   {
+      return chunks[i];
+   }
+
+   /** Copies the characters in the range [start, end) into a new array. */
+   public char[] getChars(int start, int end)
+   {
+      char[] result = new char[end - start];
+      int chunk = chunks.length == 0 ? 0 : chunkFor(Math.min(start, length - 1));
+      int copied = 0;
+      while (copied < result.length)
+      {
+         int from = start + copied - offsets[chunk];
+         int n = Math.min(chunks[chunk].length - from, result.length - copied);
+         System.arraycopy(chunks[chunk], from, result, copied, n);
+         copied += n;
+         ++chunk;
+      }
+      return result;
+   }
+
+   @Override
+   public String toString()
+   {
+      return new String(getChars(0, length));
+   }
+
+   private int chunkFor(int index)
+   {
+      int i = Arrays.binarySearch(offsets, index);
+      if (i < 0)
+      {
+         return -i - 2;
+      }
+      // Skip empty chunks that share the same offset.
+      while (i + 1 < offsets.length && offsets[i + 1] == index)
+      {
+         ++i;
+      }
+      return i;
+   }
+}
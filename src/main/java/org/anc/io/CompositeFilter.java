@@ -0,0 +1,70 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Base class for filters that combine other filters, for example
+ * {@link AndFilter}, {@link OrFilter} and {@link NotFilter}.
+ * <p>
+ * Composite filters are also {@link IPathFilter}s so the attributes fetched
+ * by the {@link DirectoryLister} are shared by all of the filters being
+ * combined. Filters that are not IPathFilters are still supported, but they
+ * will query the file system themselves.
+ * 
+ * @author Keith Suderman
+ */
+public abstract class CompositeFilter implements FileFilter, IPathFilter
+{
+   protected final FileFilter[] filters;
+
+   protected CompositeFilter(FileFilter... filters)
+   {
+      for (FileFilter filter : filters)
+      {
+         if (filter == null)
+         {
+            throw new IllegalArgumentException("Filters can not be null.");
+         }
+      }
+      this.filters = filters.clone();
+   }
+
+   /**
+    * Applies the filter to the path, passing along the attributes if the filter
+    * is able to use them.
+    */
+   protected static boolean accept(FileFilter filter, java.nio.file.Path path,
+         BasicFileAttributes attributes)
+   {
+      if (filter instanceof IPathFilter)
+      {
+         return ((IPathFilter) filter).accept(path, attributes);
+      }
+      return filter.accept(path.toFile());
+   }
+
+   @Override
+   public abstract boolean accept(File file);
+
+   @Override
+   public abstract boolean accept(java.nio.file.Path path,
+         BasicFileAttributes attributes);
+}
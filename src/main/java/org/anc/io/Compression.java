@@ -0,0 +1,174 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens files that may or may not be compressed.
+ * <p>
+ * When reading, the compression format is detected from the first bytes of
+ * the file so the file name does not matter. GZIP is decompressed on a
+ * background thread (see {@link ReadAheadInputStream}) so decompression
+ * overlaps with decoding and parsing. Other formats that are recognized but
+ * not supported by the JDK (xz, zstd and bzip2) cause an IOException rather
+ * than being returned as garbage.
+ * <p>
+ * When writing, files whose name ends with {@link #GZIP_EXTENSION} are GZIP
+ * compressed.
+ * 
+ * @author Keith Suderman
+ */
+public class Compression
+{
+   public static final String GZIP_EXTENSION = ".gz";
+
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   /** The compression formats that can be detected. */
+   public enum Format
+   {
+      NONE, GZIP, XZ, ZSTD, BZIP2
+   }
+
+   private Compression()
+   {
+   }
+
+   /**
+    * Opens the file for reading, decompressing it if necessary.
+    */
+   public static InputStream open(File file) throws IOException
+   {
+      return open(new FileInputStream(file));
+   }
+
+   /**
+    * Wraps the stream so it is decompressed if necessary.
+    */
+   public static InputStream open(InputStream stream) throws IOException
+   {
+      BufferedInputStream in = new BufferedInputStream(stream, BUFFER_SIZE);
+      Format format;
+      try
+      {
+         format = detect(in);
+      }
+      catch (IOException e)
+      {
+         in.close();
+         throw e;
+      }
+      switch (format)
+      {
+         case NONE:
+            return in;
+         case GZIP:
+            return new ReadAheadInputStream(new GZIPInputStream(in, BUFFER_SIZE));
+         default:
+            in.close();
+            throw new IOException(format + " compressed data is not supported.");
+      }
+   }
+
+   /**
+    * Creates the file for writing, compressing it if the file name ends with
+    * {@link #GZIP_EXTENSION}.
+    */
+   public static OutputStream create(File file) throws IOException
+   {
+      OutputStream out = new FileOutputStream(file);
+      if (file.getName().endsWith(GZIP_EXTENSION))
+      {
+         return new GZIPOutputStream(out, BUFFER_SIZE);
+      }
+      return new BufferedOutputStream(out, BUFFER_SIZE);
+   }
+
+   /**
+    * Detects the compression format from the magic bytes at the start of the
+    * stream. The stream is reset to its starting position.
+    */
+   public static Format detect(InputStream in) throws IOException
+   {
+      if (!in.markSupported())
+      {
+         throw new IllegalArgumentException("The stream must support mark().");
+      }
+      byte[] magic = new byte[6];
+      in.mark(magic.length);
+      int n = 0;
+      try
+      {
+         while (n < magic.length)
+         {
+            int count = in.read(magic, n, magic.length - n);
+            if (count < 0)
+            {
+               break;
+            }
+            n += count;
+         }
+      }
+      finally
+      {
+         in.reset();
+      }
+      if (matches(magic, n, 0x1F, 0x8B))
+      {
+         return Format.GZIP;
+      }
+      if (matches(magic, n, 0xFD, '7', 'z', 'X', 'Z', 0x00))
+      {
+         return Format.XZ;
+      }
+      if (matches(magic, n, 0x28, 0xB5, 0x2F, 0xFD))
+      {
+         return Format.ZSTD;
+      }
+      if (matches(magic, n, 'B', 'Z', 'h'))
+      {
+         return Format.BZIP2;
+      }
+      return Format.NONE;
+   }
+
+   private static boolean matches(byte[] bytes, int length, int... magic)
+   {
+      if (length < magic.length)
+      {
+         return false;
+      }
+      for (int i = 0; i < magic.length; ++i)
+      {
+         if ((bytes[i] & 0xFF) != magic[i])
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+}
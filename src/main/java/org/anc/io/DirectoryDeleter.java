@@ -0,0 +1,281 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes directory trees.
+ * <p>
+ * The top levels of the tree are split into sub-trees that are removed in
+ * parallel on a ForkJoinPool; below that each sub-tree is removed with
+ * <code>Files.walkFileTree</code>. Symbolic links are deleted, never
+ * followed. Deletion does not stop at the first failure: every file that can
+ * be deleted is deleted and all of the failures are returned to the caller.
+ * 
+ * <pre>
+ * List&lt;IOException&gt; failures = new DirectoryDeleter().delete(scratch);
+ * for (IOException e : failures)
+ * {
+ *    System.err.println(e.getMessage());
+ * }
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class DirectoryDeleter
+{
+   /** Directories this close to the root are split into parallel tasks. */
+   public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+   /** Number of deletions between progress reports. */
+   private static final int REPORT_INTERVAL = 1000;
+
+   private static ForkJoinPool sharedPool = null;
+
+   protected IDeleteListener listener = null;
+   protected int splitDepth = DEFAULT_SPLIT_DEPTH;
+   private final ForkJoinPool pool;
+   /** True if the pool was created by, and is shut down by, this deleter. */
+   private final boolean ownsPool;
+
+   /** Creates a deleter that uses a pool shared by all deleters. */
+   public DirectoryDeleter()
+   {
+      this.pool = getSharedPool();
+      this.ownsPool = false;
+   }
+
+   /**
+    * Creates a deleter with its own pool of <code>nThreads</code> threads.
+    * Call {@link #close()} when the deleter is no longer needed to stop the
+    * threads.
+    */
+   public DirectoryDeleter(int nThreads)
+   {
+      this.pool = new ForkJoinPool(nThreads);
+      this.ownsPool = true;
+   }
+
+   /**
+    * Creates a deleter that runs its tasks on the caller's pool. The pool is
+    * not shut down by {@link #close()}.
+    */
+   public DirectoryDeleter(ForkJoinPool pool)
+   {
+      if (pool == null)
+      {
+         throw new IllegalArgumentException("No pool specified.");
+      }
+      this.pool = pool;
+      this.ownsPool = false;
+   }
+
+   /**
+    * Shuts down the pool if it was created by this deleter. The deleter can
+    * not be used afterwards.
+    */
+   public void close()
+   {
+      if (ownsPool)
+      {
+         pool.shutdown();
+      }
+   }
+
+   private static synchronized ForkJoinPool getSharedPool()
+   {
+      if (sharedPool == null)
+      {
+         sharedPool = new ForkJoinPool();
+      }
+      return sharedPool;
+   }
+
+   public void setListener(IDeleteListener listener)
+   {
+      this.listener = listener;
+   }
+
+   /**
+    * Sets how many levels of the tree are split into parallel tasks. Zero
+    * deletes the tree on a single thread.
+    */
+   public void setSplitDepth(int depth)
+   {
+      this.splitDepth = depth;
+   }
+
+   /**
+    * Deletes the file, or the directory and everything in it.
+    * 
+    * @return The errors that occurred. The list is empty if everything was
+    *         deleted.
+    */
+   public List<IOException> delete(File file)
+   {
+      Job job = new Job();
+      pool.invoke(new DeleteTask(job, file.toPath(), 0));
+      return new ArrayList<IOException>(job.failures);
+   }
+
+   /** The state shared by all the tasks deleting one tree. */
+   class Job
+   {
+      final AtomicLong deleted = new AtomicLong();
+      final ConcurrentLinkedQueue<IOException> failures = new ConcurrentLinkedQueue<IOException>();
+
+      void delete(java.nio.file.Path path)
+      {
+         try
+         {
+            Files.delete(path);
+         }
+         catch (IOException e)
+         {
+            failures.add(e);
+            return;
+         }
+         long count = deleted.incrementAndGet();
+         if (listener != null && count % REPORT_INTERVAL == 0)
+         {
+            listener.progress(count);
+         }
+      }
+   }
+
+   class DeleteTask extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      private final Job job;
+      private final java.nio.file.Path path;
+      private final int depth;
+
+      DeleteTask(Job job, java.nio.file.Path path, int depth)
+      {
+         this.job = job;
+         this.path = path;
+         this.depth = depth;
+      }
+
+      @Override
+      protected void compute()
+      {
+         if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+         {
+            job.delete(path);
+            return;
+         }
+         if (depth >= splitDepth)
+         {
+            walk();
+            return;
+         }
+         List<DeleteTask> tasks = new ArrayList<DeleteTask>();
+         DirectoryStream<java.nio.file.Path> stream = null;
+         try
+         {
+            stream = Files.newDirectoryStream(path);
+            for (java.nio.file.Path child : stream)
+            {
+               if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS))
+               {
+                  tasks.add(new DeleteTask(job, child, depth + 1));
+               }
+               else
+               {
+                  job.delete(child);
+               }
+            }
+         }
+         catch (IOException e)
+         {
+            job.failures.add(e);
+         }
+         finally
+         {
+            if (stream != null) try
+            {
+               stream.close();
+            }
+            catch (IOException e)
+            {
+               job.failures.add(e);
+            }
+         }
+         invokeAll(tasks);
+         job.delete(path);
+      }
+
+      /** Deletes the sub-tree on this thread. */
+      private void walk()
+      {
+         try
+         {
+            Files.walkFileTree(path, new SimpleFileVisitor<java.nio.file.Path>() {
+               @Override
+               public FileVisitResult visitFile(java.nio.file.Path file,
+                     BasicFileAttributes attributes)
+               {
+                  job.delete(file);
+                  return FileVisitResult.CONTINUE;
+               }
+
+               @Override
+               public FileVisitResult visitFileFailed(java.nio.file.Path file,
+                     IOException e)
+               {
+                  // Possibly a file that can not be stat'ed; try to delete it
+                  // anyway and only report the error if that fails.
+                  job.delete(file);
+                  return FileVisitResult.CONTINUE;
+               }
+
+               @Override
+               public FileVisitResult postVisitDirectory(java.nio.file.Path dir,
+                     IOException e)
+               {
+                  if (e != null)
+                  {
+                     job.failures.add(e);
+                  }
+                  job.delete(dir);
+                  return FileVisitResult.CONTINUE;
+               }
+            });
+         }
+         catch (IOException e)
+         {
+            job.failures.add(e);
+         }
+      }
+   }
+}
@@ -18,6 +18,7 @@ package org.anc.io;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * FileFilter that only accepts directories.
@@ -25,7 +26,7 @@ import java.io.FileFilter;
  * @author Keith Suderman
  * @version 1.0
  */
-public class DirectoryFilter implements FileFilter
+public class DirectoryFilter implements FileFilter, IPathFilter
 {
    /**
     * Accepts directories only.
@@ -40,4 +41,10 @@ public class DirectoryFilter implements FileFilter
    {
       return (pathname.isDirectory());
    }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      return attributes.isDirectory();
+   }
 }
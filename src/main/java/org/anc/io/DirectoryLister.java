@@ -19,11 +19,22 @@ package org.anc.io;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * The DirectoryLister class provides a way to iterate over the files in a
  * directory.
+ * <p>
+ * If the filter also implements {@link IPathFilter} the attributes of each
+ * directory entry are read once and handed to the filter, rather than letting
+ * the filter query the file system itself.
  * 
  * @author Keith Suderman
  * @version 1.0
@@ -110,6 +121,10 @@ public class DirectoryLister implements Iterable<File>
          {
             listing = directory.listFiles();
          }
+         else if (filter instanceof IPathFilter)
+         {
+            listing = listFiles((IPathFilter) filter);
+         }
          else
          {
             listing = directory.listFiles(filter);
@@ -117,6 +132,159 @@ public class DirectoryLister implements Iterable<File>
       }
    }
 
+   /**
+    * Lists the directory performing at most one attribute lookup per entry.
+    * The attributes are only read if the filter asks for them, so a filter
+    * that only looks at names does not touch the file system at all.
+    * 
+    * @return The accepted files, or <code>null</code> if the directory can not
+    *         be read (the same as <code>File.listFiles</code>).
+    */
+   protected File[] listFiles(IPathFilter pathFilter)
+   {
+      List<File> files = new ArrayList<File>();
+      DirectoryStream<java.nio.file.Path> stream = null;
+      try
+      {
+         stream = Files.newDirectoryStream(directory.toPath());
+         for (java.nio.file.Path path : stream)
+         {
+            LazyAttributes attributes = new LazyAttributes(path);
+            if (pathFilter.accept(path, attributes) && !attributes.isMissing())
+            {
+               files.add(path.toFile());
+            }
+         }
+      }
+      catch (IOException e)
+      {
+         return null;
+      }
+      finally
+      {
+         if (stream != null) try
+         {
+            stream.close();
+         }
+         catch (IOException e)
+         {
+            // Ignored so the caller sees the original exception, if any.
+         }
+      }
+      return files.toArray(new File[files.size()]);
+   }
+
+   /**
+    * Reads the attributes of a directory entry the first time one of them is
+    * requested.
+    */
+   private static class LazyAttributes implements BasicFileAttributes
+   {
+      private static final FileTime EPOCH = FileTime.fromMillis(0);
+
+      private final java.nio.file.Path path;
+      private BasicFileAttributes attributes = null;
+      private boolean missing = false;
+
+      LazyAttributes(java.nio.file.Path path)
+      {
+         this.path = path;
+      }
+
+      /** Returns true if the entry was removed before it could be read. */
+      boolean isMissing()
+      {
+         return missing;
+      }
+
+      private BasicFileAttributes get()
+      {
+         if (attributes == null && !missing)
+         {
+            attributes = readAttributes(path);
+            missing = attributes == null;
+         }
+         return attributes;
+      }
+
+      @Override
+      public FileTime lastModifiedTime()
+      {
+         return get() == null ? EPOCH : attributes.lastModifiedTime();
+      }
+
+      @Override
+      public FileTime lastAccessTime()
+      {
+         return get() == null ? EPOCH : attributes.lastAccessTime();
+      }
+
+      @Override
+      public FileTime creationTime()
+      {
+         return get() == null ? EPOCH : attributes.creationTime();
+      }
+
+      @Override
+      public boolean isRegularFile()
+      {
+         return get() != null && attributes.isRegularFile();
+      }
+
+      @Override
+      public boolean isDirectory()
+      {
+         return get() != null && attributes.isDirectory();
+      }
+
+      @Override
+      public boolean isSymbolicLink()
+      {
+         return get() != null && attributes.isSymbolicLink();
+      }
+
+      @Override
+      public boolean isOther()
+      {
+         return get() != null && attributes.isOther();
+      }
+
+      @Override
+      public long size()
+      {
+         return get() == null ? 0 : attributes.size();
+      }
+
+      @Override
+      public Object fileKey()
+      {
+         return get() == null ? null : attributes.fileKey();
+      }
+   }
+
+   private static BasicFileAttributes readAttributes(java.nio.file.Path path)
+   {
+      try
+      {
+         return Files.readAttributes(path, BasicFileAttributes.class);
+      }
+      catch (IOException e)
+      {
+         // Dangling symbolic links can not be followed, so fall back to the
+         // attributes of the link itself.
+      }
+      try
+      {
+         return Files.readAttributes(path, BasicFileAttributes.class,
+               LinkOption.NOFOLLOW_LINKS);
+      }
+      catch (IOException e)
+      {
+         // The entry was removed after the directory was read.
+         return null;
+      }
+   }
+
    class DirectoryListerIterator implements Iterator<File>
    {
       private int index = 0;
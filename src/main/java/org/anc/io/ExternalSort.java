@@ -0,0 +1,605 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.anc.util.Heap;
+
+/**
+ * Sorts text files that are too large to fit in memory.
+ * <p>
+ * The input is read one line at a time and collected into runs that fit in
+ * the memory budget. Each run is sorted on a worker thread and spilled to a
+ * temporary file while the next run is being read. The sorted runs are then
+ * merged with a {@link Heap}. If the whole input fits in a single run it is
+ * sorted in memory and no temporary files are written.
+ * <p>
+ * Duplicate lines can be kept, removed, or collapsed into a single line
+ * followed by a tab and the number of times the line occurred, which is
+ * handy for frequency counts.
+ * 
+ * <pre>
+ * ExternalSort sort = new ExternalSort();
+ * sort.setMemoryLimit(256 * 1024 * 1024);
+ * sort.setDuplicates(ExternalSort.Duplicates.COUNT);
+ * sort.sort(new File("tokens.txt"), new File("counts.txt"));
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class ExternalSort
+{
+   /** What to do with lines that compare as equal. */
+   public enum Duplicates
+   {
+      /** Output every line. */
+      KEEP,
+      /** Output only the first of a group of equal lines. */
+      REMOVE,
+      /** Output each line once followed by a tab and its count. */
+      COUNT
+   }
+
+   public static final char COUNT_SEPARATOR = '\t';
+
+   /** The maximum number of runs merged at once. */
+   protected static final int MAX_FAN_IN = 128;
+
+   private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+   /** Rough per line overhead of a String in a list, in bytes. */
+   private static final int LINE_OVERHEAD = 64;
+
+   private static final Comparator<String> NATURAL = new Comparator<String>() {
+      @Override
+      public int compare(String o1, String o2)
+      {
+         return o1.compareTo(o2);
+      }
+   };
+
+   protected Comparator<String> comparator = NATURAL;
+   protected Duplicates duplicates = Duplicates.KEEP;
+   protected long memoryLimit = Runtime.getRuntime().maxMemory() / 4;
+   protected int nThreads = Runtime.getRuntime().availableProcessors();
+   protected File tempDirectory = null;
+
+   public ExternalSort()
+   {
+   }
+
+   public ExternalSort(Comparator<String> comparator)
+   {
+      setComparator(comparator);
+   }
+
+   public void setComparator(Comparator<String> comparator)
+   {
+      this.comparator = comparator == null ? NATURAL : comparator;
+   }
+
+   public void setDuplicates(Duplicates duplicates)
+   {
+      this.duplicates = duplicates;
+   }
+
+   /**
+    * Sets the number of bytes of heap the lines being sorted may use. This is
+    * shared by the run being read and the runs being sorted.
+    */
+   public void setMemoryLimit(long bytes)
+   {
+      this.memoryLimit = bytes;
+   }
+
+   /** Sets the number of threads used to sort and spill runs. */
+   public void setThreads(int nThreads)
+   {
+      if (nThreads < 1)
+      {
+         throw new IllegalArgumentException("Invalid number of threads " + nThreads);
+      }
+      this.nThreads = nThreads;
+   }
+
+   /**
+    * Sets the directory for the temporary run files. The default is the
+    * system temporary directory.
+    */
+   public void setTempDirectory(File directory)
+   {
+      this.tempDirectory = directory;
+   }
+
+   /** Sorts the lines of a UTF-8 file. */
+   public void sort(File input, File output) throws IOException
+   {
+      final BufferedReader reader = new BufferedReader(new UTF8Reader(
+            new FileInputStream(input)), IO_BUFFER_SIZE);
+      try
+      {
+         sort(new LineIterator(reader), output);
+      }
+      catch (IllegalStateException e)
+      {
+         if (e.getCause() instanceof IOException)
+         {
+            throw (IOException) e.getCause();
+         }
+         throw e;
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   /** Sorts the lines and writes them to the output file using UTF-8. */
+   public void sort(Iterable<String> lines, File output) throws IOException
+   {
+      sort(lines.iterator(), output);
+   }
+
+   protected void sort(Iterator<String> lines, File output) throws IOException
+   {
+      // One run being filled plus one for each thread sorting.
+      long runLimit = Math.max(1, memoryLimit / (nThreads + 1));
+      final List<File> runs = Collections.synchronizedList(new ArrayList<File>());
+      List<Future<File>> spills = new ArrayList<Future<File>>();
+      final Semaphore permits = new Semaphore(nThreads);
+      boolean spilled = false;
+      ExecutorService executor = null;
+      try
+      {
+         List<String> run = new ArrayList<String>();
+         long size = 0;
+         while (lines.hasNext())
+         {
+            String line = lines.next();
+            run.add(line);
+            size += LINE_OVERHEAD + 2L * line.length();
+            if (size >= runLimit && lines.hasNext())
+            {
+               if (executor == null)
+               {
+                  executor = Executors.newFixedThreadPool(nThreads);
+               }
+               permits.acquire();
+               // Stop reading as soon as a spill has failed.
+               checkSpills(spills);
+               final List<String> full = run;
+               spills.add(executor.submit(new Callable<File>() {
+                  @Override
+                  public File call() throws IOException
+                  {
+                     try
+                     {
+                        File file = spill(full);
+                        runs.add(file);
+                        return file;
+                     }
+                     finally
+                     {
+                        permits.release();
+                     }
+                  }
+               }));
+               spilled = true;
+               run = new ArrayList<String>();
+               size = 0;
+            }
+         }
+         if (!spilled)
+         {
+            // Everything fit in memory.
+            sortRun(run);
+            Writer writer = openWriter(output);
+            try
+            {
+               write(run, writer, false);
+            }
+            finally
+            {
+               writer.close();
+            }
+            return;
+         }
+         runs.add(spill(run));
+         run = null;
+         for (Future<File> spill : spills)
+         {
+            spill.get();
+         }
+         mergeAll(new ArrayList<File>(runs), output);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while sorting.", e);
+      }
+      catch (ExecutionException e)
+      {
+         if (e.getCause() instanceof IOException)
+         {
+            throw (IOException) e.getCause();
+         }
+         throw new IOException("Unable to sort.", e.getCause());
+      }
+      finally
+      {
+         if (executor != null)
+         {
+            shutdown(executor);
+         }
+         for (File file : runs)
+         {
+            file.delete();
+         }
+      }
+   }
+
+   /**
+    * Removes the spills that have finished, throwing the exception of the
+    * first one that failed. The executor is shut down by the caller, which
+    * cancels the spills still waiting to run.
+    */
+   private static void checkSpills(List<Future<File>> spills) throws InterruptedException,
+         ExecutionException
+   {
+      Iterator<Future<File>> it = spills.iterator();
+      while (it.hasNext())
+      {
+         Future<File> spill = it.next();
+         if (spill.isDone())
+         {
+            spill.get();
+            it.remove();
+         }
+      }
+   }
+
+   /**
+    * Stops the executor and waits for any spill in progress so its run file
+    * can be deleted.
+    */
+   private static void shutdown(ExecutorService executor)
+   {
+      executor.shutdownNow();
+      try
+      {
+         executor.awaitTermination(1, TimeUnit.MINUTES);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private void sortRun(List<String> run)
+   {
+      Collections.sort(run, comparator);
+   }
+
+   /**
+    * Sorts the run and writes it to a temporary file. The file is deleted if
+    * it can not be written completely.
+    */
+   protected File spill(List<String> run) throws IOException
+   {
+      sortRun(run);
+      File file = File.createTempFile("sort", ".run", tempDirectory);
+      boolean written = false;
+      try
+      {
+         Writer writer = openWriter(file);
+         try
+         {
+            write(run, writer, true);
+         }
+         finally
+         {
+            writer.close();
+         }
+         written = true;
+      }
+      finally
+      {
+         if (!written)
+         {
+            file.delete();
+         }
+      }
+      return file;
+   }
+
+   /**
+    * Writes a sorted run, applying the duplicate policy. Intermediate runs
+    * written in COUNT mode start each line with the count so the count
+    * survives the merge.
+    */
+   private void write(List<String> run, Writer writer, boolean intermediate)
+         throws IOException
+   {
+      String previous = null;
+      long count = 0;
+      for (String line : run)
+      {
+         if (previous != null && duplicates != Duplicates.KEEP
+               && comparator.compare(previous, line) == 0)
+         {
+            ++count;
+            continue;
+         }
+         if (previous != null)
+         {
+            writeLine(writer, previous, count, intermediate);
+         }
+         previous = line;
+         count = 1;
+      }
+      if (previous != null)
+      {
+         writeLine(writer, previous, count, intermediate);
+      }
+   }
+
+   private void writeLine(Writer writer, String line, long count,
+         boolean intermediate) throws IOException
+   {
+      if (duplicates == Duplicates.COUNT)
+      {
+         if (intermediate)
+         {
+            writer.write(Long.toString(count));
+            writer.write(COUNT_SEPARATOR);
+            writer.write(line);
+         }
+         else
+         {
+            writer.write(line);
+            writer.write(COUNT_SEPARATOR);
+            writer.write(Long.toString(count));
+         }
+      }
+      else
+      {
+         writer.write(line);
+      }
+      writer.write('\n');
+   }
+
+   /**
+    * Merges the runs, in several passes if there are more than
+    * {@link #MAX_FAN_IN} of them.
+    */
+   protected void mergeAll(List<File> runs, File output) throws IOException
+   {
+      List<File> temporary = new ArrayList<File>();
+      try
+      {
+         while (runs.size() > MAX_FAN_IN)
+         {
+            List<File> next = new ArrayList<File>();
+            for (int i = 0; i < runs.size(); i += MAX_FAN_IN)
+            {
+               List<File> group = runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size()));
+               File merged = File.createTempFile("sort", ".run", tempDirectory);
+               temporary.add(merged);
+               merge(group, merged, true);
+               next.add(merged);
+            }
+            runs = next;
+         }
+         merge(runs, output, false);
+      }
+      finally
+      {
+         for (File file : temporary)
+         {
+            file.delete();
+         }
+      }
+   }
+
+   protected void merge(List<File> runs, File output, boolean intermediate)
+         throws IOException
+   {
+      Heap<Run> heap = new Heap<Run>(runs.size() + 2);
+      Writer writer = null;
+      try
+      {
+         for (int i = 0; i < runs.size(); ++i)
+         {
+            Run run = new Run(runs.get(i), i);
+            if (run.next())
+            {
+               heap.add(run);
+            }
+            else
+            {
+               run.close();
+            }
+         }
+         writer = openWriter(output);
+         String previous = null;
+         long count = 0;
+         while (!heap.isEmpty())
+         {
+            Run run = heap.remove();
+            if (previous != null && duplicates != Duplicates.KEEP
+                  && comparator.compare(previous, run.line) == 0)
+            {
+               count += run.count;
+            }
+            else
+            {
+               if (previous != null)
+               {
+                  writeLine(writer, previous, count, intermediate);
+               }
+               previous = run.line;
+               count = run.count;
+            }
+            if (run.next())
+            {
+               heap.add(run);
+            }
+            else
+            {
+               run.close();
+            }
+         }
+         if (previous != null)
+         {
+            writeLine(writer, previous, count, intermediate);
+         }
+      }
+      finally
+      {
+         for (Run run : heap)
+         {
+            run.close();
+         }
+         if (writer != null)
+         {
+            writer.close();
+         }
+      }
+   }
+
+   private static Writer openWriter(File file) throws IOException
+   {
+      return new BufferedWriter(new UTF8Writer(new FileOutputStream(file)),
+            IO_BUFFER_SIZE);
+   }
+
+   /** A sorted run being merged. */
+   class Run implements Comparable<Run>
+   {
+      final BufferedReader reader;
+      /** Breaks ties so equal lines are merged in run order. */
+      final int index;
+      String line;
+      long count;
+
+      Run(File file, int index) throws IOException
+      {
+         this.reader = new BufferedReader(new UTF8Reader(new FileInputStream(file)),
+               IO_BUFFER_SIZE);
+         this.index = index;
+      }
+
+      boolean next() throws IOException
+      {
+         line = reader.readLine();
+         if (line == null)
+         {
+            return false;
+         }
+         count = 1;
+         if (duplicates == Duplicates.COUNT)
+         {
+            int tab = line.indexOf(COUNT_SEPARATOR);
+            count = Long.parseLong(line.substring(0, tab));
+            line = line.substring(tab + 1);
+         }
+         return true;
+      }
+
+      void close()
+      {
+         try
+         {
+            reader.close();
+         }
+         catch (IOException e)
+         {
+            // Nothing useful can be done.
+         }
+      }
+
+      @Override
+      public int compareTo(Run other)
+      {
+         int result = comparator.compare(line, other.line);
+         if (result == 0)
+         {
+            result = index < other.index ? -1 : (index == other.index ? 0 : 1);
+         }
+         return result;
+      }
+   }
+
+   /** Adapts a BufferedReader to an Iterator over its lines. */
+   static class LineIterator implements Iterator<String>
+   {
+      private final BufferedReader reader;
+      private String line;
+
+      LineIterator(BufferedReader reader) throws IOException
+      {
+         this.reader = reader;
+         this.line = reader.readLine();
+      }
+
+      @Override
+      public boolean hasNext()
+      {
+         return line != null;
+      }
+
+      @Override
+      public String next()
+      {
+         String result = line;
+         try
+         {
+            line = reader.readLine();
+         }
+         catch (IOException e)
+         {
+            throw new IllegalStateException("Unable to read the input.", e);
+         }
+         return result;
+      }
+
+      @Override
+      public void remove()
+      {
+         throw new UnsupportedOperationException();
+      }
+   }
+}
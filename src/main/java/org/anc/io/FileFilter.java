@@ -17,6 +17,7 @@
 package org.anc.io;
 
 import java.io.File;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * A java.io.FileFilter that accepts files only.
@@ -24,11 +25,17 @@ import java.io.File;
  * @author Keith Suderman
  *
  */
-public class FileFilter implements java.io.FileFilter
+public class FileFilter implements java.io.FileFilter, IPathFilter
 {
    @Override
    public boolean accept(File file)
    {
       return file.isFile();
    }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      return attributes.isRegularFile();
+   }
 }
@@ -0,0 +1,252 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a text file into line aligned byte ranges so that a single large
+ * file can be processed by several workers.
+ * <p>
+ * Only the bytes around each split point are read: the splitter seeks to the
+ * nominal split point and scans forward to the next newline. Each
+ * {@link Range} can then be opened independently and only returns the lines
+ * that start in that range.
+ * 
+ * <pre>
+ * for (FileSplitter.Range range : FileSplitter.split(file, nThreads))
+ * {
+ *    executor.submit(new Worker(range));
+ * }
+ * ...
+ * // In the worker
+ * BufferedReader reader = range.openReader();
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class FileSplitter
+{
+   private static final int SCAN_BUFFER_SIZE = 8192;
+
+   private FileSplitter()
+   {
+   }
+
+   /**
+    * Splits the file into <code>n</code> line aligned ranges of roughly the
+    * same size. Ranges may be empty if the file contains lines that are longer
+    * than a range.
+    */
+   public static List<Range> split(File file, int n) throws IOException
+   {
+      if (n < 1)
+      {
+         throw new IllegalArgumentException("Invalid number of ranges: " + n);
+      }
+      List<Range> ranges = new ArrayList<Range>(n);
+      FileInputStream stream = new FileInputStream(file);
+      try
+      {
+         FileChannel channel = stream.getChannel();
+         long size = channel.size();
+         ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+         long start = 0;
+         for (int i = 1; i < n; ++i)
+         {
+            long end = size * i / n;
+            if (end <= start)
+            {
+               end = start;
+            }
+            else
+            {
+               end = nextLine(channel, end - 1, size, buffer);
+            }
+            ranges.add(new Range(file, start, end));
+            start = end;
+         }
+         ranges.add(new Range(file, start, size));
+      }
+      finally
+      {
+         stream.close();
+      }
+      return ranges;
+   }
+
+   /**
+    * Returns the position following the first newline at or after
+    * <code>position</code>, or <code>size</code> if there isn't one.
+    */
+   private static long nextLine(FileChannel channel, long position, long size,
+         ByteBuffer buffer) throws IOException
+   {
+      while (position < size)
+      {
+         buffer.clear();
+         int n = channel.read(buffer, position);
+         if (n < 0)
+         {
+            break;
+         }
+         for (int i = 0; i < n; ++i)
+         {
+            if (buffer.get(i) == '\n')
+            {
+               return position + i + 1;
+            }
+         }
+         position += n;
+      }
+      return size;
+   }
+
+   /** A range of bytes [start, end) of a file. */
+   public static class Range
+   {
+      protected final File file;
+      protected final long start;
+      protected final long end;
+
+      public Range(File file, long start, long end)
+      {
+         this.file = file;
+         this.start = start;
+         this.end = end;
+      }
+
+      public File getFile()
+      {
+         return file;
+      }
+
+      public long getStart()
+      {
+         return start;
+      }
+
+      public long getEnd()
+      {
+         return end;
+      }
+
+      public long length()
+      {
+         return end - start;
+      }
+
+      /** Opens a stream that returns only the bytes in this range. */
+      public InputStream openStream() throws IOException
+      {
+         FileInputStream in = new FileInputStream(file);
+         try
+         {
+            in.getChannel().position(start);
+         }
+         catch (IOException e)
+         {
+            in.close();
+            throw e;
+         }
+         return new BoundedInputStream(in, end - start);
+      }
+
+      /** Opens a UTF-8 reader over the lines in this range. */
+      public BufferedReader openReader() throws IOException
+      {
+         return new BufferedReader(new UTF8Reader(openStream()));
+      }
+
+      @Override
+      public String toString()
+      {
+         return file.getPath() + "[" + start + ", " + end + ")";
+      }
+   }
+
+   /** Limits the number of bytes that can be read from a stream. */
+   static class BoundedInputStream extends InputStream
+   {
+      private final InputStream in;
+      private long remaining;
+
+      BoundedInputStream(InputStream in, long limit)
+      {
+         this.in = in;
+         this.remaining = limit;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         if (remaining <= 0)
+         {
+            return -1;
+         }
+         int b = in.read();
+         if (b >= 0)
+         {
+            --remaining;
+         }
+         return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException
+      {
+         if (remaining <= 0)
+         {
+            return -1;
+         }
+         int n = in.read(b, off, (int) Math.min(len, remaining));
+         if (n > 0)
+         {
+            remaining -= n;
+         }
+         return n;
+      }
+
+      @Override
+      public long skip(long n) throws IOException
+      {
+         long skipped = in.skip(Math.min(n, remaining));
+         remaining -= skipped;
+         return skipped;
+      }
+
+      @Override
+      public int available() throws IOException
+      {
+         return (int) Math.min(in.available(), remaining);
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         in.close();
+      }
+   }
+}
@@ -2,14 +2,24 @@ package org.anc.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.zip.Checksum;
 
 /**
  * Helper functions for reading/writing strings to/from files.
+ * <p>
+ * Use an {@link AsyncFileWriter} when writing large numbers of small files.
  *
  * @author Keith Suderman
  */
 public class FileUtils
 {
+   /**
+    * Files at least this large are decoded in parallel by {@link #read(File)}.
+    */
+   public static final long DEFAULT_PARALLEL_THRESHOLD = 64L * 1024 * 1024;
+
+   private static volatile long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
    public FileUtils()
    {
 
@@ -35,13 +45,106 @@ public class FileUtils
       }
    }
 
+   /**
+    * Writes the String to the file using UTF-8. The String is written to a
+    * temporary file that is renamed to <code>file</code> once it is complete,
+    * so an interrupted write never leaves a truncated file behind.
+    */
+   public static final void writeAtomic(String path, String string) throws IOException
+   {
+      writeAtomic(new File(path), string, null);
+   }
+
+   /** See {@link #writeAtomic(String, String)}. */
+   public static final void writeAtomic(File file, String string) throws IOException
+   {
+      writeAtomic(file, string, null);
+   }
+
+   /**
+    * Atomically writes the String to the file using UTF-8 and computes the
+    * checksum of the bytes written on the fly.
+    *
+    * @return The checksum value, or zero if <code>checksum</code> is null.
+    */
+   public static final long writeAtomic(File file, String string, Checksum checksum)
+         throws IOException
+   {
+      AtomicFileOutputStream out = new AtomicFileOutputStream(file, checksum);
+      UTF8Writer writer = new UTF8Writer(out);
+      try
+      {
+         writer.write(string);
+         writer.flush();
+         return out.commit();
+      }
+      finally
+      {
+         writer.close();
+      }
+   }
+
+   /**
+    * Writes the String to the file using UTF-8, GZIP compressing it if the
+    * file name ends with {@link Compression#GZIP_EXTENSION}.
+    */
+   public static final void writeCompressed(File file, String string) throws IOException
+   {
+      UTF8Writer writer = UTF8Writer.create(file);
+      try
+      {
+         writer.write(string);
+      }
+      finally
+      {
+         writer.close();
+      }
+   }
+
+   /**
+    * Reads the file, decompressing it first if it is compressed. The
+    * compression is detected from the contents of the file, not from its
+    * name. {@link #read(File)} does not decompress.
+    */
+   public static final String readCompressed(File file) throws IOException
+   {
+      UTF8Reader reader = UTF8Reader.open(file);
+      try
+      {
+         return reader.readString();
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
    public static final String read(String path) throws IOException
    {
       return read(new File(path));
    }
 
+   /**
+    * Sets the size (in bytes) above which {@link #read(File)} uses a
+    * {@link ParallelUTF8Decoder}. Use <code>Long.MAX_VALUE</code> to always
+    * decode on the calling thread.
+    */
+   public static void setParallelThreshold(long bytes)
+   {
+      parallelThreshold = bytes;
+   }
+
+   public static long getParallelThreshold()
+   {
+      return parallelThreshold;
+   }
+
    public static final String read(File file) throws IOException
    {
+      if (file.length() >= parallelThreshold)
+      {
+         return ParallelUTF8Decoder.decodeToString(file);
+      }
       UTF8Reader reader = new UTF8Reader(file);
       String result = null;
       try
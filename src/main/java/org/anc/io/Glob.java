@@ -0,0 +1,442 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled shell style glob pattern.
+ * <p>
+ * The following wildcards are recognized:
+ * <ul>
+ * <li><tt>*</tt> matches zero or more characters, but not '/'</li>
+ * <li><tt>**</tt> matches zero or more characters, including '/'</li>
+ * <li><tt>?</tt> matches exactly one character other than '/'</li>
+ * <li><tt>[abc]</tt>, <tt>[a-z]</tt> matches one character from the set. The
+ * set is negated if the first character is '!' or '^'</li>
+ * <li><tt>\</tt> quotes the next character</li>
+ * </ul>
+ * All other characters, including regular expression meta characters such as
+ * '.', '+' and '(', only match themselves.
+ * <p>
+ * Patterns that consist of a literal prefix and/or suffix around a single
+ * <tt>*</tt> (e.g. <tt>*.txt</tt> or <tt>sw*-ptb.xml</tt>) are compiled to
+ * plain <code>startsWith</code>/<code>endsWith</code> tests. Everything else
+ * is matched by a small backtracking matcher; java.util.regex is never used.
+ * 
+ * @author Keith Suderman
+ */
+public abstract class Glob
+{
+   private static final char SEPARATOR = '/';
+
+   protected final String pattern;
+
+   protected Glob(String pattern)
+   {
+      this.pattern = pattern;
+   }
+
+   /**
+    * Compiles the glob pattern.
+    * 
+    * @param pattern
+    *           The glob pattern to compile.
+    * @return A Glob that can be used to match strings against the pattern.
+    */
+   public static Glob compile(String pattern)
+   {
+      Token[] tokens = parse(pattern);
+      int n = tokens.length;
+      if (n == 0)
+      {
+         return new Literal(pattern, "");
+      }
+      if (n == 1)
+      {
+         Token t = tokens[0];
+         if (t.type == Token.LITERAL)
+         {
+            return new Literal(pattern, t.literal);
+         }
+         if (t.isStar())
+         {
+            return new Affix(pattern, "", "", t.type == Token.DOUBLE_STAR);
+         }
+      }
+      else if (n == 2)
+      {
+         Token first = tokens[0];
+         Token second = tokens[1];
+         if (first.type == Token.LITERAL && second.isStar())
+         {
+            return new Affix(pattern, first.literal, "",
+                  second.type == Token.DOUBLE_STAR);
+         }
+         if (first.isStar() && second.type == Token.LITERAL)
+         {
+            return new Affix(pattern, "", second.literal,
+                  first.type == Token.DOUBLE_STAR);
+         }
+      }
+      else if (n == 3)
+      {
+         Token first = tokens[0];
+         Token star = tokens[1];
+         Token last = tokens[2];
+         if (first.type == Token.LITERAL && star.isStar()
+               && last.type == Token.LITERAL)
+         {
+            return new Affix(pattern, first.literal, last.literal,
+                  star.type == Token.DOUBLE_STAR);
+         }
+      }
+      return new General(pattern, tokens);
+   }
+
+   /**
+    * Returns <code>true</code> if the entire string matches the pattern.
+    */
+   public abstract boolean matches(String s);
+
+   /** Returns the pattern this Glob was compiled from. */
+   public String pattern()
+   {
+      return pattern;
+   }
+
+   @Override
+   public String toString()
+   {
+      return pattern;
+   }
+
+   /**
+    * Returns true if s contains a separator character in the range
+    * [start, end).
+    */
+   private static boolean hasSeparator(String s, int start, int end)
+   {
+      for (int i = start; i < end; ++i)
+      {
+         if (s.charAt(i) == SEPARATOR)
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private static Token[] parse(String pattern)
+   {
+      List<Token> tokens = new ArrayList<Token>();
+      StringBuilder literal = new StringBuilder();
+      int length = pattern.length();
+      int i = 0;
+      while (i < length)
+      {
+         char c = pattern.charAt(i);
+         if (c == '*')
+         {
+            int start = i;
+            while (i < length && pattern.charAt(i) == '*')
+            {
+               ++i;
+            }
+            flush(literal, tokens);
+            tokens.add(new Token(i - start > 1 ? Token.DOUBLE_STAR : Token.STAR));
+            continue;
+         }
+         if (c == '?')
+         {
+            flush(literal, tokens);
+            tokens.add(new Token(Token.ANY));
+            ++i;
+            continue;
+         }
+         if (c == '[')
+         {
+            int end = parseClass(pattern, i, tokens, literal);
+            if (end > i)
+            {
+               i = end;
+               continue;
+            }
+            // Unterminated character class, treat the '[' as a literal.
+         }
+         if (c == '\\' && i + 1 < length)
+         {
+            ++i;
+            c = pattern.charAt(i);
+         }
+         literal.append(c);
+         ++i;
+      }
+      flush(literal, tokens);
+      return tokens.toArray(new Token[tokens.size()]);
+   }
+
+   /**
+    * Parses the character class that starts at <code>start</code>. Returns
+    * the index of the first character after the class, or <code>start</code>
+    * if the class is not terminated.
+    */
+   private static int parseClass(String pattern, int start, List<Token> tokens,
+         StringBuilder literal)
+   {
+      int length = pattern.length();
+      int i = start + 1;
+      boolean negated = false;
+      if (i < length && (pattern.charAt(i) == '!' || pattern.charAt(i) == '^'))
+      {
+         negated = true;
+         ++i;
+      }
+      StringBuilder ranges = new StringBuilder();
+      boolean first = true;
+      while (i < length)
+      {
+         char c = pattern.charAt(i);
+         if (c == ']' && !first)
+         {
+            flush(literal, tokens);
+            Token token = new Token(Token.CLASS);
+            token.ranges = ranges.toString().toCharArray();
+            token.negated = negated;
+            tokens.add(token);
+            return i + 1;
+         }
+         first = false;
+         if (c == '\\' && i + 1 < length)
+         {
+            c = pattern.charAt(++i);
+         }
+         char hi = c;
+         if (i + 2 < length && pattern.charAt(i + 1) == '-'
+               && pattern.charAt(i + 2) != ']')
+         {
+            i += 2;
+            hi = pattern.charAt(i);
+            if (hi == '\\' && i + 1 < length)
+            {
+               hi = pattern.charAt(++i);
+            }
+         }
+         ranges.append(c).append(hi);
+         ++i;
+      }
+      return start;
+   }
+
+   private static void flush(StringBuilder literal, List<Token> tokens)
+   {
+      if (literal.length() > 0)
+      {
+         Token token = new Token(Token.LITERAL);
+         token.literal = literal.toString();
+         tokens.add(token);
+         literal.setLength(0);
+      }
+   }
+
+   static class Token
+   {
+      static final int LITERAL = 0;
+      static final int ANY = 1;
+      static final int CLASS = 2;
+      static final int STAR = 3;
+      static final int DOUBLE_STAR = 4;
+
+      final int type;
+      String literal;
+      /** Pairs of low/high characters. */
+      char[] ranges;
+      boolean negated;
+
+      Token(int type)
+      {
+         this.type = type;
+      }
+
+      boolean isStar()
+      {
+         return type == STAR || type == DOUBLE_STAR;
+      }
+
+      boolean matches(char c)
+      {
+         if (c == SEPARATOR)
+         {
+            return false;
+         }
+         for (int i = 0; i < ranges.length; i += 2)
+         {
+            if (c >= ranges[i] && c <= ranges[i + 1])
+            {
+               return !negated;
+            }
+         }
+         return negated;
+      }
+   }
+
+   /** A pattern without any wildcards. */
+   static class Literal extends Glob
+   {
+      private final String literal;
+
+      Literal(String pattern, String literal)
+      {
+         super(pattern);
+         this.literal = literal;
+      }
+
+      @Override
+      public boolean matches(String s)
+      {
+         return literal.equals(s);
+      }
+   }
+
+   /** A single star with an optional literal prefix and/or suffix. */
+   static class Affix extends Glob
+   {
+      private final String prefix;
+      private final String suffix;
+      private final int minLength;
+      private final boolean crossSeparators;
+
+      Affix(String pattern, String prefix, String suffix, boolean crossSeparators)
+      {
+         super(pattern);
+         this.prefix = prefix;
+         this.suffix = suffix;
+         this.minLength = prefix.length() + suffix.length();
+         this.crossSeparators = crossSeparators;
+      }
+
+      @Override
+      public boolean matches(String s)
+      {
+         int length = s.length();
+         if (length < minLength || !s.startsWith(prefix) || !s.endsWith(suffix))
+         {
+            return false;
+         }
+         return crossSeparators
+               || !hasSeparator(s, prefix.length(), length - suffix.length());
+      }
+   }
+
+   /** Everything else. */
+   static class General extends Glob
+   {
+      private final Token[] tokens;
+
+      General(String pattern, Token[] tokens)
+      {
+         super(pattern);
+         this.tokens = tokens;
+      }
+
+      @Override
+      public boolean matches(String s)
+      {
+         return match(s, 0, 0);
+      }
+
+      private boolean match(String s, int ti, int si)
+      {
+         int length = s.length();
+         while (ti < tokens.length)
+         {
+            Token token = tokens[ti];
+            switch (token.type)
+            {
+               case Token.LITERAL:
+                  if (!s.startsWith(token.literal, si))
+                  {
+                     return false;
+                  }
+                  si += token.literal.length();
+                  break;
+               case Token.ANY:
+                  if (si >= length || s.charAt(si) == SEPARATOR)
+                  {
+                     return false;
+                  }
+                  ++si;
+                  break;
+               case Token.CLASS:
+                  if (si >= length || !token.matches(s.charAt(si)))
+                  {
+                     return false;
+                  }
+                  ++si;
+                  break;
+               default:
+                  return matchStar(s, ti, si);
+            }
+            ++ti;
+         }
+         return si == length;
+      }
+
+      private boolean matchStar(String s, int ti, int si)
+      {
+         boolean cross = tokens[ti].type == Token.DOUBLE_STAR;
+         int length = s.length();
+         if (ti == tokens.length - 1)
+         {
+            return cross || !hasSeparator(s, si, length);
+         }
+         // The furthest position the star can reach.
+         int limit = length;
+         if (!cross)
+         {
+            int separator = s.indexOf(SEPARATOR, si);
+            if (separator >= 0)
+            {
+               limit = separator;
+            }
+         }
+         Token next = tokens[ti + 1];
+         if (next.type == Token.LITERAL)
+         {
+            int i = s.indexOf(next.literal, si);
+            while (i >= 0 && i <= limit)
+            {
+               if (match(s, ti + 1, i))
+               {
+                  return true;
+               }
+               i = s.indexOf(next.literal, i + 1);
+            }
+            return false;
+         }
+         for (int i = si; i <= limit; ++i)
+         {
+            if (match(s, ti + 1, i))
+            {
+               return true;
+            }
+         }
+         return false;
+      }
+   }
+}
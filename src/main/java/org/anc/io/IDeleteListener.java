@@ -0,0 +1,34 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+/**
+ * Receives progress reports from a {@link DirectoryDeleter}. Reports may be
+ * delivered from several threads at once.
+ * 
+ * @author Keith Suderman
+ */
+public interface IDeleteListener
+{
+   /**
+    * Called periodically while a tree is being deleted.
+    * 
+    * @param deleted
+    *           The number of files and directories deleted so far.
+    */
+   void progress(long deleted);
+}
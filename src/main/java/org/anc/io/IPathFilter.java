@@ -0,0 +1,48 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file filter that is handed the attributes of the file being tested rather
+ * than having to fetch them itself.
+ * <p>
+ * A {@link java.io.FileFilter} has to call <code>isDirectory()</code> or
+ * <code>isFile()</code> to decide what to do with a file, and each of those
+ * calls is a round trip to the file system. When a {@link DirectoryLister} is
+ * given an IPathFilter it reads the attributes of each directory entry once and
+ * passes them to the filter, no matter how many filters have been stacked
+ * together. The attributes are read the first time the filter calls one of
+ * their methods, so filters should test the name first when they can.
+ * 
+ * @author Keith Suderman
+ */
+public interface IPathFilter
+{
+   /**
+    * Tests whether or not the path should be included in a listing.
+    * 
+    * @param path
+    *           The path to be tested.
+    * @param attributes
+    *           The attributes of <code>path</code>. Never <code>null</code>.
+    * @return <code>true</code> if and only if <code>path</code> should be
+    *         included.
+    */
+   boolean accept(java.nio.file.Path path, BasicFileAttributes attributes);
+}
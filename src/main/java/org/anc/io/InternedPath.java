@@ -0,0 +1,218 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+
+/**
+ * A compact, interned file path.
+ * <p>
+ * Every InternedPath is a single node in the prefix tree of a
+ * {@link PathTable}: it holds a reference to its parent and the name of its
+ * last component, so millions of paths that share long prefixes only store
+ * each distinct directory once. Because paths are interned, two paths
+ * from the same table are equal if and only if they are the same object.
+ * <p>
+ * The string form is not stored; it is generated on demand, preferably into
+ * a buffer supplied by the caller with {@link #appendTo(StringBuilder)}.
+ * 
+ * @author Keith Suderman
+ */
+public final class InternedPath
+{
+   private static final char SEPARATOR = '/';
+
+   final PathTable table;
+   final InternedPath parent;
+   final String name;
+   final int hash;
+   /** Number of components between this path and its root. */
+   private final int depth;
+   /** Length of the string form of this path. */
+   private final int length;
+
+   /** Creates a root node. */
+   InternedPath(PathTable table, String name)
+   {
+      this.table = table;
+      this.parent = null;
+      this.name = name;
+      this.hash = name.hashCode();
+      this.depth = 0;
+      this.length = name.length();
+   }
+
+   InternedPath(InternedPath parent, String name, int hash)
+   {
+      this.table = parent.table;
+      this.parent = parent;
+      this.name = name;
+      this.hash = hash;
+      this.depth = parent.depth + 1;
+      this.length = parent.length + (parent.parent == null ? 0 : 1) + name.length();
+   }
+
+   /** Returns the parent of this path, or <code>null</code> for a root. */
+   public InternedPath getParent()
+   {
+      return parent;
+   }
+
+   /** Returns the last component of this path. */
+   public String getName()
+   {
+      return name;
+   }
+
+   /** Returns the number of components in the path. */
+   public int getDepth()
+   {
+      return depth;
+   }
+
+   /** Returns the number of characters in the string form of the path. */
+   public int length()
+   {
+      return length;
+   }
+
+   public boolean isRoot()
+   {
+      return parent == null;
+   }
+
+   public boolean isAbsolute()
+   {
+      return root() == table.getAbsoluteRoot();
+   }
+
+   public InternedPath root()
+   {
+      InternedPath node = this;
+      while (node.parent != null)
+      {
+         node = node.parent;
+      }
+      return node;
+   }
+
+   /** Returns the interned child with the given name. */
+   public InternedPath child(String name)
+   {
+      return table.child(this, name);
+   }
+
+   /**
+    * Returns the interned path for <code>relative</code> resolved against this
+    * path. See {@link PathTable#intern(String)} for how the string is parsed.
+    */
+   public InternedPath resolve(String relative)
+   {
+      return table.resolve(this, relative);
+   }
+
+   /**
+    * Returns <code>true</code> if this path is <code>ancestor</code> or is
+    * below <code>ancestor</code> in the tree.
+    */
+   public boolean startsWith(InternedPath ancestor)
+   {
+      InternedPath node = this;
+      while (node != null && node.depth >= ancestor.depth)
+      {
+         if (node == ancestor)
+         {
+            return true;
+         }
+         node = node.parent;
+      }
+      return false;
+   }
+
+   /** Appends the string form of the path to the buffer. */
+   public StringBuilder appendTo(StringBuilder buffer)
+   {
+      int start = buffer.length();
+      buffer.setLength(start + length);
+      getChars(buffer, start + length);
+      return buffer;
+   }
+
+   /**
+    * Writes the string form of the path into the array starting at
+    * <code>offset</code>. The array must have room for {@link #length()}
+    * characters.
+    * 
+    * @return The offset following the last character written.
+    */
+   public int getChars(char[] dest, int offset)
+   {
+      int end = offset + length;
+      InternedPath node = this;
+      int position = end;
+      while (node != null)
+      {
+         position -= node.name.length();
+         node.name.getChars(0, node.name.length(), dest, position);
+         if (node.parent != null && node.parent.parent != null)
+         {
+            dest[--position] = SEPARATOR;
+         }
+         node = node.parent;
+      }
+      return end;
+   }
+
+   /** Fills buffer[..end) from the end backwards. */
+   private void getChars(StringBuilder buffer, int end)
+   {
+      InternedPath node = this;
+      int position = end;
+      while (node != null)
+      {
+         String s = node.name;
+         for (int i = s.length() - 1; i >= 0; --i)
+         {
+            buffer.setCharAt(--position, s.charAt(i));
+         }
+         if (node.parent != null && node.parent.parent != null)
+         {
+            buffer.setCharAt(--position, SEPARATOR);
+         }
+         node = node.parent;
+      }
+   }
+
+   public File toFile()
+   {
+      return new File(toString());
+   }
+
+   @Override
+   public String toString()
+   {
+      char[] chars = new char[length];
+      getChars(chars, 0);
+      return new String(chars);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return hash;
+   }
+}
@@ -18,8 +18,24 @@ package org.anc.io;
 
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.Writer;
 
 /**
+ * Prints lines of text to a PrintStream, a PrintWriter, or any other Writer.
+ * <p>
+ * When constructed with a Writer, a buffer size and a flush interval the
+ * output is collected in a reusable character buffer and passed to the
+ * Writer when the buffer fills up, or at the end of a line once the flush
+ * interval has elapsed. This avoids the flush on every line that an
+ * auto-flushing PrintStream performs. The interval is only checked when a
+ * line is printed, so a partial line, or the last line before the printer
+ * goes idle, stays buffered until the next println, flush or close. Setting
+ * <code>background</code> to <code>true</code> also moves the writes to a
+ * separate thread.
+ * 
+ * <pre>
+ * LinePrinter out = new LinePrinter(new UTF8Writer(file), 64 * 1024, 1000, true);
+ * </pre>
  * 
  * @author Keith Suderman
  * @version 1.0
@@ -39,6 +55,37 @@ public class LinePrinter
       printer = new StreamLinePrinter(stream);
    }
 
+   public LinePrinter(Writer sink, int bufferSize, long flushMillis)
+   {
+      this(sink, bufferSize, flushMillis, false);
+   }
+
+   /**
+    * @param sink
+    *           Where the output is written.
+    * @param bufferSize
+    *           The number of characters buffered before they are written.
+    * @param flushMillis
+    *           The maximum time (milliseconds) a complete line is held in the
+    *           buffer, checked when the next line is printed. Zero flushes by
+    *           size only.
+    * @param background
+    *           If <code>true</code> buffers are written by a background
+    *           thread.
+    */
+   public LinePrinter(Writer sink, int bufferSize, long flushMillis,
+         boolean background)
+   {
+      if (background)
+      {
+         printer = new AsyncLinePrinter(sink, bufferSize, flushMillis);
+      }
+      else
+      {
+         printer = new BufferedLinePrinter(sink, bufferSize, flushMillis);
+      }
+   }
+
    public void println()
    {
       printer.println();
@@ -79,10 +126,24 @@ public class LinePrinter
       printer.print(c);
    }
 
+   public void flush()
+   {
+      printer.flush();
+   }
+
    public void close()
    {
       printer.close();
    }
+
+   /**
+    * Returns true if an error occurred while writing. Like a PrintStream the
+    * print methods never throw; errors are only reported here.
+    */
+   public boolean checkError()
+   {
+      return printer.checkError();
+   }
 }
 
 interface ILinePrinter
@@ -105,7 +166,11 @@ interface ILinePrinter
 
    void print(char c);
 
+   void flush();
+
    void close();
+
+   boolean checkError();
 }
 
 class StreamLinePrinter implements ILinePrinter
@@ -171,11 +236,23 @@ class StreamLinePrinter implements ILinePrinter
       out.print(c);
    }
 
+   @Override
+   public void flush()
+   {
+      out.flush();
+   }
+
    @Override
    public void close()
    {
       out.close();
    }
+
+   @Override
+   public boolean checkError()
+   {
+      return out.checkError();
+   }
 }
 
 class WriterLinePrinter implements ILinePrinter
@@ -241,9 +318,21 @@ class WriterLinePrinter implements ILinePrinter
       out.print(c);
    }
 
+   @Override
+   public void flush()
+   {
+      out.flush();
+   }
+
    @Override
    public void close()
    {
       out.close();
    }
+
+   @Override
+   public boolean checkError()
+   {
+      return out.checkError();
+   }
 }
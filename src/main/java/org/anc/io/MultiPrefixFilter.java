@@ -0,0 +1,86 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Accepts files whose name starts with any one of a set of prefixes.
+ * <p>
+ * The prefixes are compiled into a trie so testing a file name costs
+ * O(<i>name length</i>) no matter how many prefixes there are. Use this
+ * instead of chaining several {@link PrefixFilter}s together.
+ * 
+ * @author Keith Suderman
+ */
+public class MultiPrefixFilter implements FileFilter, IPathFilter
+{
+   private final CharTrie trie = new CharTrie();
+   private boolean includeDirectories = false;
+
+   public MultiPrefixFilter(String... prefixes)
+   {
+      this(Arrays.asList(prefixes), false);
+   }
+
+   public MultiPrefixFilter(Collection<String> prefixes)
+   {
+      this(prefixes, false);
+   }
+
+   public MultiPrefixFilter(Collection<String> prefixes, boolean includeDirectories)
+   {
+      for (String prefix : prefixes)
+      {
+         trie.addPrefix(prefix);
+      }
+      this.includeDirectories = includeDirectories;
+   }
+
+   /**
+    * Tests whether or not the specified abstract pathname should be included in
+    * a pathname list.
+    * 
+    * @param path
+    *           The abstract pathname to be tested
+    * @return <code>true</code> if and only if <code>path</code> should be
+    *         included.
+    */
+   @Override
+   public boolean accept(File path)
+   {
+      if (includeDirectories && path.isDirectory())
+      {
+         return true;
+      }
+      return trie.startsWithAny(path.getName());
+   }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      if (trie.startsWithAny(path.getFileName().toString()))
+      {
+         return true;
+      }
+      return includeDirectories && attributes.isDirectory();
+   }
+}
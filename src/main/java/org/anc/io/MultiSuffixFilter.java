@@ -0,0 +1,90 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Accepts files whose name ends with any one of a set of suffixes, e.g.
+ * <tt>.txt</tt>, <tt>.xml</tt> and <tt>-hepple.xml</tt>.
+ * <p>
+ * The suffixes are compiled into a reversed trie so testing a file name costs
+ * O(<i>name length</i>) no matter how many suffixes there are. Use this
+ * instead of chaining several {@link SuffixFilter}s together.
+ * 
+ * @author Keith Suderman
+ */
+public class MultiSuffixFilter implements FileFilter, IPathFilter
+{
+   private final CharTrie trie = new CharTrie();
+   private boolean includeDirectories = false;
+
+   public MultiSuffixFilter(String... suffixes)
+   {
+      this(Arrays.asList(suffixes), false);
+   }
+
+   public MultiSuffixFilter(Collection<String> suffixes)
+   {
+      this(suffixes, false);
+   }
+
+   public MultiSuffixFilter(Collection<String> suffixes, boolean includeDirectories)
+   {
+      for (String suffix : suffixes)
+      {
+         trie.addSuffix(suffix);
+      }
+      this.includeDirectories = includeDirectories;
+   }
+
+   /**
+    * Tests whether or not the specified abstract pathname should be included in
+    * a pathname list.
+    * 
+    * @param path
+    *           The abstract pathname to be tested
+    * @return <code>true</code> if and only if <code>path</code> should be
+    *         included.
+    */
+   @Override
+   public boolean accept(File path)
+   {
+      if (path.isDirectory())
+      {
+         return includeDirectories;
+      }
+      return trie.endsWithAny(path.getName());
+   }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      // Directories are accepted if and only if includeDirectories is set, so the
+      // attributes are only needed when the name alone does not decide.
+      boolean matches = trie.endsWithAny(path.getFileName().toString());
+      if (matches == includeDirectories)
+      {
+         return matches;
+      }
+      return attributes.isDirectory() == includeDirectories;
+   }
+}
@@ -0,0 +1,51 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Accepts a file if and only if the wrapped filter rejects it.
+ * <p>
+ * Note that this is a plain logical negation; filters that reject directories
+ * will have their directories accepted by the NotFilter. Combine the NotFilter
+ * with an {@link org.anc.io.FileFilter} using an {@link AndFilter} to list
+ * files only.
+ * 
+ * @author Keith Suderman
+ */
+public class NotFilter extends CompositeFilter
+{
+   public NotFilter(FileFilter filter)
+   {
+      super(filter);
+   }
+
+   @Override
+   public boolean accept(File file)
+   {
+      return !filters[0].accept(file);
+   }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      return !accept(filters[0], path, attributes);
+   }
+}
@@ -0,0 +1,216 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes large UTF-8 files using all available processors.
+ * <p>
+ * The file is split into chunks whose boundaries are moved forward to the
+ * start of a UTF-8 character, the chunks are decoded in parallel on a
+ * ForkJoinPool, and the results are either stitched into a single String or
+ * returned as a {@link ChunkedCharSequence} that avoids the final copy.
+ * <p>
+ * Malformed input is replaced with U+FFFD, the same as {@link UTF8Reader}.
+ * 
+ * @author Keith Suderman
+ */
+public class ParallelUTF8Decoder
+{
+   public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+   private static final Charset UTF8 = Charset.forName(UTF8Reader.ENCODING);
+
+   private static ForkJoinPool pool = null;
+
+   private ParallelUTF8Decoder()
+   {
+   }
+
+   /** Decodes the file into a single String. */
+   public static String decodeToString(File file) throws IOException
+   {
+      return decode(file, DEFAULT_CHUNK_SIZE).toString();
+   }
+
+   /**
+    * Decodes the file and returns the decoded chunks without copying them
+    * into a single array.
+    */
+   public static ChunkedCharSequence decode(File file) throws IOException
+   {
+      return decode(file, DEFAULT_CHUNK_SIZE);
+   }
+
+   public static ChunkedCharSequence decode(File file, int chunkSize)
+         throws IOException
+   {
+      if (chunkSize < 4)
+      {
+         throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+      }
+      FileInputStream stream = new FileInputStream(file);
+      try
+      {
+         final FileChannel channel = stream.getChannel();
+         long[] bounds = split(channel, chunkSize);
+         List<Callable<char[]>> tasks = new ArrayList<Callable<char[]>>();
+         for (int i = 0; i < bounds.length - 1; ++i)
+         {
+            final long start = bounds[i];
+            final int length = (int) (bounds[i + 1] - start);
+            tasks.add(new Callable<char[]>() {
+               @Override
+               public char[] call() throws IOException
+               {
+                  return decode(channel, start, length);
+               }
+            });
+         }
+         List<Future<char[]>> futures = getPool().invokeAll(tasks);
+         char[][] chunks = new char[futures.size()][];
+         for (int i = 0; i < chunks.length; ++i)
+         {
+            chunks[i] = futures.get(i).get();
+         }
+         return new ChunkedCharSequence(chunks);
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+         if (cause instanceof IOException)
+         {
+            throw (IOException) cause;
+         }
+         throw new IOException("Unable to decode " + file.getPath(), cause);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while decoding " + file.getPath(), e);
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   private static synchronized ForkJoinPool getPool()
+   {
+      if (pool == null)
+      {
+         pool = new ForkJoinPool();
+      }
+      return pool;
+   }
+
+   /**
+    * Returns the chunk boundaries. Every boundary other than the end of the
+    * file is moved forward past any UTF-8 continuation bytes so that no
+    * character is split between two chunks.
+    */
+   static long[] split(FileChannel channel, int chunkSize) throws IOException
+   {
+      long size = channel.size();
+      List<Long> bounds = new ArrayList<Long>();
+      bounds.add(0L);
+      ByteBuffer probe = ByteBuffer.allocate(4);
+      long position = chunkSize;
+      while (position < size)
+      {
+         probe.clear();
+         readFully(channel, probe, position);
+         int skip = 0;
+         while (skip < probe.position() && (probe.get(skip) & 0xC0) == 0x80)
+         {
+            ++skip;
+         }
+         position += skip;
+         if (position >= size)
+         {
+            break;
+         }
+         bounds.add(position);
+         position += chunkSize;
+      }
+      bounds.add(size);
+      long[] result = new long[bounds.size()];
+      for (int i = 0; i < result.length; ++i)
+      {
+         result[i] = bounds.get(i);
+      }
+      return result;
+   }
+
+   private static char[] decode(FileChannel channel, long start, int length)
+         throws IOException
+   {
+      ByteBuffer bytes = ByteBuffer.allocate(length);
+      readFully(channel, bytes, start);
+      bytes.flip();
+      // A UTF-8 byte sequence never decodes to more chars than it has bytes.
+      CharBuffer chars = CharBuffer.allocate(length);
+      CharsetDecoder decoder = UTF8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      CoderResult result = decoder.decode(bytes, chars, true);
+      if (!result.isUnderflow())
+      {
+         result.throwException();
+      }
+      result = decoder.flush(chars);
+      if (!result.isUnderflow())
+      {
+         throw new CharacterCodingException();
+      }
+      int n = chars.position();
+      char[] array = chars.array();
+      return n == array.length ? array : Arrays.copyOf(array, n);
+   }
+
+   private static void readFully(FileChannel channel, ByteBuffer buffer,
+         long position) throws IOException
+   {
+      while (buffer.hasRemaining())
+      {
+         int n = channel.read(buffer, position);
+         if (n < 0)
+         {
+            break;
+         }
+         position += n;
+      }
+   }
+}
@@ -25,6 +25,7 @@ import java.util.StringTokenizer;
 /**
  * @author Keith Suderman
  * @version 1.0
+ * @deprecated Use an {@link InternedPath} from a {@link PathTable}.
  */
 @Deprecated
 public class Path implements Iterable<String>
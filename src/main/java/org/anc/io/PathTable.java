@@ -0,0 +1,182 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The prefix tree that {@link InternedPath} objects are interned in.
+ * <p>
+ * Paths are split on '/'. Empty components and "." are ignored; ".." is kept
+ * as an ordinary component, the same as an un-normalized java.nio.file.Path.
+ * Paths that start with '/' are placed under the absolute root, all other
+ * paths under the relative root.
+ * <p>
+ * Child lookup uses a single open addressing hash table keyed on the parent
+ * node and the child name, so nodes do not need their own child maps.
+ * Component names are also interned, so a name like <tt>data</tt> is only
+ * stored once no matter how many directories use it. All methods are thread
+ * safe.
+ * 
+ * <pre>
+ * PathTable paths = new PathTable();
+ * InternedPath file = paths.intern("/corpus/data/written/file.txt");
+ * StringBuilder buffer = new StringBuilder();
+ * file.getParent().appendTo(buffer);
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class PathTable
+{
+   private static final int INITIAL_CAPACITY = 1024;
+
+   private final InternedPath relativeRoot = new InternedPath(this, "");
+   private final InternedPath absoluteRoot = new InternedPath(this, "/");
+
+   private InternedPath[] table = new InternedPath[INITIAL_CAPACITY];
+   private int size = 0;
+   private final Map<String, String> names = new HashMap<String, String>();
+
+   public PathTable()
+   {
+   }
+
+   public InternedPath getRelativeRoot()
+   {
+      return relativeRoot;
+   }
+
+   public InternedPath getAbsoluteRoot()
+   {
+      return absoluteRoot;
+   }
+
+   /** Returns the number of paths in the table, not counting the roots. */
+   public synchronized int size()
+   {
+      return size;
+   }
+
+   public InternedPath intern(File file)
+   {
+      String path = file.getPath();
+      if (File.separatorChar != '/')
+      {
+         path = path.replace(File.separatorChar, '/');
+      }
+      return intern(path);
+   }
+
+   public InternedPath intern(String path)
+   {
+      if (path.startsWith("/"))
+      {
+         return resolve(absoluteRoot, path);
+      }
+      return resolve(relativeRoot, path);
+   }
+
+   InternedPath resolve(InternedPath node, String path)
+   {
+      int length = path.length();
+      int start = 0;
+      while (start < length)
+      {
+         int end = path.indexOf('/', start);
+         if (end < 0)
+         {
+            end = length;
+         }
+         int n = end - start;
+         if (n > 0 && !(n == 1 && path.charAt(start) == '.'))
+         {
+            node = child(node, path.substring(start, end));
+         }
+         start = end + 1;
+      }
+      return node;
+   }
+
+   synchronized InternedPath child(InternedPath parent, String name)
+   {
+      if (parent.table != this)
+      {
+         throw new IllegalArgumentException("The path belongs to a different PathTable.");
+      }
+      if (name.length() == 0 || name.indexOf('/') >= 0)
+      {
+         throw new IllegalArgumentException("Invalid path component: " + name);
+      }
+      int hash = parent.hash * 31 + name.hashCode();
+      int mask = table.length - 1;
+      int index = mix(hash) & mask;
+      InternedPath node = table[index];
+      while (node != null)
+      {
+         if (node.hash == hash && node.parent == parent && node.name.equals(name))
+         {
+            return node;
+         }
+         index = (index + 1) & mask;
+         node = table[index];
+      }
+      String interned = names.get(name);
+      if (interned == null)
+      {
+         interned = name;
+         names.put(name, name);
+      }
+      node = new InternedPath(parent, interned, hash);
+      table[index] = node;
+      if (++size > table.length - (table.length >> 2))
+      {
+         grow();
+      }
+      return node;
+   }
+
+   private void grow()
+   {
+      InternedPath[] old = table;
+      table = new InternedPath[old.length * 2];
+      int mask = table.length - 1;
+      for (InternedPath node : old)
+      {
+         if (node != null)
+         {
+            int index = mix(node.hash) & mask;
+            while (table[index] != null)
+            {
+               index = (index + 1) & mask;
+            }
+            table[index] = node;
+         }
+      }
+   }
+
+   /** Spreads the bits of the hash code so linear probing works well. */
+   private static int mix(int h)
+   {
+      h ^= (h >>> 16);
+      h *= 0x85EBCA6B;
+      h ^= (h >>> 13);
+      return h;
+   }
+}
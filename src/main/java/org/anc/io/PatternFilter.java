@@ -18,16 +18,16 @@ package org.anc.io;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
- * A FileFilter that takes a perl like regular expression and accepts files that
- * matches the pattern.
+ * A FileFilter that takes a shell style glob pattern (e.g. <tt>*.txt</tt>) and
+ * accepts files whose name matches the pattern. See {@link Glob} for the
+ * supported wildcards.
  */
-public class PatternFilter implements FileFilter
+public class PatternFilter implements FileFilter, IPathFilter
 {
-   private Pattern pattern = null;
+   private Glob pattern = null;
    private boolean listDirectories = true;
 
    public PatternFilter()
@@ -35,18 +35,16 @@ public class PatternFilter implements FileFilter
       super();
    }
 
-   public PatternFilter(String regex)
+   public PatternFilter(String pattern)
    {
-      this(regex, true);
+      this(pattern, true);
    }
 
-   public PatternFilter(String regex, boolean listDirectories)
+   public PatternFilter(String pattern, boolean listDirectories)
    {
-      if (regex != null)
+      if (pattern != null)
       {
-         regex = regex.replaceAll("\\.", "\\\\.");
-         regex = regex.replaceAll("\\*", ".*");
-         pattern = Pattern.compile(regex);
+         this.pattern = Glob.compile(pattern);
       }
       this.listDirectories = listDirectories;
    }
@@ -63,10 +61,24 @@ public class PatternFilter implements FileFilter
          return listDirectories;
       }
 
-      String filename = file.getName();
-//      CharSequence s = filename.subSequence(0, filename.length());
-      Matcher matcher = pattern.matcher(filename);
-      return matcher.matches();
+      return pattern.matches(file.getName());
+   }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      if (pattern == null)
+      {
+         return listDirectories || attributes.isRegularFile();
+      }
+      // Directories are accepted if and only if listDirectories is set, so
+      // the attributes are only needed when the name alone does not decide.
+      boolean matches = pattern.matches(path.getFileName().toString());
+      if (matches == listDirectories)
+      {
+         return matches;
+      }
+      return attributes.isDirectory() == listDirectories;
    }
 
    public static void main(String[] args)
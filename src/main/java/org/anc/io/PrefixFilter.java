@@ -18,6 +18,7 @@ package org.anc.io;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * Filters files based on the start (prefix) of the file name.
@@ -25,7 +26,7 @@ import java.io.FileFilter;
  * @author Keith Suderman
  * @version 1.0
  */
-public class PrefixFilter implements FileFilter
+public class PrefixFilter implements FileFilter, IPathFilter
 {
    private String prefix;
    private boolean includeDirectories = false;
@@ -60,4 +61,14 @@ public class PrefixFilter implements FileFilter
       return path.getName().startsWith(prefix);
    }
 
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      if (path.getFileName().toString().startsWith(prefix))
+      {
+         return true;
+      }
+      return includeDirectories && attributes.isDirectory();
+   }
+
 }
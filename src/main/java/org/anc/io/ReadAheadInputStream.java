@@ -0,0 +1,267 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An InputStream that reads ahead from another stream on a background thread.
+ * <p>
+ * The background thread fills a small pool of buffers from the source stream
+ * while the caller consumes buffers that have already been filled. This is
+ * useful when the source stream is expensive to read, for example a
+ * GZIPInputStream, as the decompression overlaps with whatever the caller
+ * does with the data.
+ * <p>
+ * Any IOException thrown by the source stream is re-thrown to the caller
+ * once the data read before the exception has been consumed; anything else
+ * the source throws is wrapped in an IOException. The source stream is only
+ * ever read by the background thread, and {@link #close()} waits for that
+ * thread to stop before closing the source.
+ * 
+ * @author Keith Suderman
+ */
+public class ReadAheadInputStream extends InputStream
+{
+   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+   public static final int DEFAULT_BUFFER_COUNT = 4;
+
+   private static final Chunk EOF = new Chunk(null, -1, null);
+
+   private final InputStream source;
+   private final BlockingQueue<Chunk> full;
+   private final BlockingQueue<byte[]> empty;
+   private final Thread reader;
+   private volatile boolean closed = false;
+
+   private Chunk current = null;
+   private int position = 0;
+
+   public ReadAheadInputStream(InputStream source)
+   {
+      this(source, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+   }
+
+   public ReadAheadInputStream(InputStream source, int bufferSize, int nBuffers)
+   {
+      if (bufferSize < 1 || nBuffers < 1)
+      {
+         throw new IllegalArgumentException("Invalid buffer settings.");
+      }
+      this.source = source;
+      this.full = new ArrayBlockingQueue<Chunk>(nBuffers + 1);
+      this.empty = new ArrayBlockingQueue<byte[]>(nBuffers);
+      for (int i = 0; i < nBuffers; ++i)
+      {
+         empty.add(new byte[bufferSize]);
+      }
+      reader = new Thread(new Runnable() {
+         @Override
+         public void run()
+         {
+            readAhead();
+         }
+      }, "ReadAheadInputStream");
+      reader.setDaemon(true);
+      reader.start();
+   }
+
+   @Override
+   public int read() throws IOException
+   {
+      if (!next())
+      {
+         return -1;
+      }
+      return current.data[position++] & 0xFF;
+   }
+
+   @Override
+   public int read(byte[] b, int off, int len) throws IOException
+   {
+      if (len == 0)
+      {
+         return 0;
+      }
+      if (!next())
+      {
+         return -1;
+      }
+      int n = Math.min(len, current.length - position);
+      System.arraycopy(current.data, position, b, off, n);
+      position += n;
+      return n;
+   }
+
+   @Override
+   public int available() throws IOException
+   {
+      if (current == null || current == EOF)
+      {
+         return 0;
+      }
+      return current.length - position;
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      if (closed)
+      {
+         return;
+      }
+      closed = true;
+      reader.interrupt();
+      boolean interrupted = false;
+      while (reader.isAlive())
+      {
+         try
+         {
+            reader.join();
+         }
+         catch (InterruptedException e)
+         {
+            interrupted = true;
+         }
+      }
+      if (interrupted)
+      {
+         Thread.currentThread().interrupt();
+      }
+      source.close();
+   }
+
+   /**
+    * Makes sure there is unread data in the current chunk.
+    * 
+    * @return <code>false</code> at the end of the stream.
+    */
+   private boolean next() throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Stream closed.");
+      }
+      if (current == EOF)
+      {
+         return false;
+      }
+      if (current != null && position < current.length)
+      {
+         return true;
+      }
+      if (current != null)
+      {
+         empty.offer(current.data);
+      }
+      try
+      {
+         current = full.take();
+      }
+      catch (InterruptedException e)
+      {
+         current = null;
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted waiting for data.");
+      }
+      position = 0;
+      if (current.error != null)
+      {
+         IOException error = current.error;
+         current = EOF;
+         throw error;
+      }
+      return current != EOF;
+   }
+
+   /** The body of the background thread. */
+   private void readAhead()
+   {
+      try
+      {
+         while (!closed)
+         {
+            byte[] buffer = empty.take();
+            int n = fill(buffer);
+            if (n > 0)
+            {
+               full.put(new Chunk(buffer, n, null));
+            }
+            if (n < buffer.length)
+            {
+               full.put(EOF);
+               return;
+            }
+         }
+      }
+      catch (InterruptedException e)
+      {
+         // Closed by the consumer.
+      }
+      catch (IOException e)
+      {
+         failed(e);
+      }
+      catch (Throwable e)
+      {
+         failed(new IOException("Unable to read from the source stream.", e));
+      }
+   }
+
+   /** Passes an error to the consumer in place of the end of the stream. */
+   private void failed(IOException e)
+   {
+      if (!closed)
+      {
+         full.offer(new Chunk(null, 0, e));
+      }
+   }
+
+   /** Reads until the buffer is full or the end of the stream is reached. */
+   private int fill(byte[] buffer) throws IOException
+   {
+      int n = 0;
+      while (n < buffer.length)
+      {
+         int count = source.read(buffer, n, buffer.length - n);
+         if (count < 0)
+         {
+            break;
+         }
+         n += count;
+      }
+      return n;
+   }
+
+   static class Chunk
+   {
+      final byte[] data;
+      final int length;
+      final IOException error;
+
+      Chunk(byte[] data, int length, IOException error)
+      {
+         this.data = data;
+         this.length = length;
+         this.error = error;
+      }
+   }
+}
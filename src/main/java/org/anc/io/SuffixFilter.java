@@ -18,6 +18,7 @@ package org.anc.io;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * Accepts files based on the file name's suffix. Note, the suffix need not be
@@ -27,7 +28,7 @@ import java.io.FileFilter;
  * @author Keith Suderman
  * @version 1.0
  */
-public class SuffixFilter implements FileFilter
+public class SuffixFilter implements FileFilter, IPathFilter
 {
    private String suffix;
    private boolean includeDirectories = false;
@@ -67,4 +68,17 @@ public class SuffixFilter implements FileFilter
       }
       return path.getName().endsWith(suffix);
    }
+
+   @Override
+   public boolean accept(java.nio.file.Path path, BasicFileAttributes attributes)
+   {
+      // Directories are accepted if and only if includeDirectories is set, so the
+      // attributes are only needed when the name alone does not decide.
+      boolean matches = path.getFileName().toString().endsWith(suffix);
+      if (matches == includeDirectories)
+      {
+         return matches;
+      }
+      return attributes.isDirectory() == includeDirectories;
+   }
 }
@@ -16,6 +16,7 @@
  */
 package org.anc.io;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -33,6 +34,7 @@ import java.io.UnsupportedEncodingException;
 public class UTF16PrintStream extends PrintStream
 {
    public static final String ENCODING = "UTF-16";
+   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
 
    public UTF16PrintStream(OutputStream out)
          throws UnsupportedEncodingException
@@ -58,4 +60,29 @@ public class UTF16PrintStream extends PrintStream
       super(out, autoFlush, ENCODING);
    }
 
+   /**
+    * Creates a stream that buffers its output and does not flush on every
+    * line. The caller must call <code>flush()</code> or <code>close()</code>
+    * to ensure all output is written.
+    */
+   public static UTF16PrintStream buffered(File file) throws FileNotFoundException,
+         UnsupportedEncodingException
+   {
+      return buffered(new FileOutputStream(file), DEFAULT_BUFFER_SIZE);
+   }
+
+   /** See {@link #buffered(File)}. */
+   public static UTF16PrintStream buffered(File file, int bufferSize)
+         throws FileNotFoundException, UnsupportedEncodingException
+   {
+      return buffered(new FileOutputStream(file), bufferSize);
+   }
+
+   /** See {@link #buffered(File)}. */
+   public static UTF16PrintStream buffered(OutputStream out, int bufferSize)
+         throws UnsupportedEncodingException
+   {
+      return new UTF16PrintStream(new BufferedOutputStream(out, bufferSize), false);
+   }
+
 }
@@ -16,16 +16,31 @@
  */
 package org.anc.io;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 /**
  * Extends the java.io.PrintStream and provides constructors that ensure the
  * stream's character encoding is set to UTF-8
+ * <p>
+ * {@link #print(CharSequence)} encodes StringBuilders and other
+ * CharSequences directly into a reusable byte buffer instead of converting
+ * them to a String and passing them through the PrintStream's writer chain.
+ * Use {@link #buffered(File)} to create a stream that does not flush on every
+ * line.
  * 
  * @author not attributable
  * @version 1.0
@@ -33,6 +48,13 @@ import java.io.UnsupportedEncodingException;
 public class UTF8PrintStream extends PrintStream
 {
    public static final String ENCODING = "UTF-8";
+   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+   private static final int ENCODE_BUFFER_SIZE = 8192;
+
+   private final boolean autoFlush;
+   private CharsetEncoder encoder = null;
+   private ByteBuffer bytes = null;
 
    public UTF8PrintStream(OutputStream out) throws UnsupportedEncodingException
    {
@@ -55,6 +77,113 @@ public class UTF8PrintStream extends PrintStream
          throws UnsupportedEncodingException
    {
       super(out, autoFlush, ENCODING);
+      this.autoFlush = autoFlush;
+   }
+
+   /**
+    * Creates a stream that buffers its output and does not flush on every
+    * line. The caller must call <code>flush()</code> or <code>close()</code>
+    * to ensure all output is written.
+    */
+   public static UTF8PrintStream buffered(File file) throws FileNotFoundException,
+         UnsupportedEncodingException
+   {
+      return buffered(new FileOutputStream(file), DEFAULT_BUFFER_SIZE);
+   }
+
+   /** See {@link #buffered(File)}. */
+   public static UTF8PrintStream buffered(File file, int bufferSize)
+         throws FileNotFoundException, UnsupportedEncodingException
+   {
+      return buffered(new FileOutputStream(file), bufferSize);
    }
 
+   /** See {@link #buffered(File)}. */
+   public static UTF8PrintStream buffered(OutputStream out, int bufferSize)
+         throws UnsupportedEncodingException
+   {
+      return new UTF8PrintStream(new BufferedOutputStream(out, bufferSize), false);
+   }
+
+   /**
+    * Prints the characters without first converting them to a String.
+    */
+   public void print(CharSequence chars)
+   {
+      if (chars == null)
+      {
+         print((String) null);
+         return;
+      }
+      synchronized (this)
+      {
+         if (out == null)
+         {
+            setError();
+            return;
+         }
+         try
+         {
+            encode(CharBuffer.wrap(chars));
+            if (autoFlush && contains(chars, '\n'))
+            {
+               out.flush();
+            }
+         }
+         catch (InterruptedIOException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         catch (IOException e)
+         {
+            setError();
+         }
+      }
+   }
+
+   @Override
+   public UTF8PrintStream append(CharSequence chars)
+   {
+      print(chars == null ? "null" : chars);
+      return this;
+   }
+
+   private void encode(CharBuffer chars) throws IOException
+   {
+      if (encoder == null)
+      {
+         encoder = Charset.forName(ENCODING).newEncoder()
+               .onMalformedInput(CodingErrorAction.REPLACE)
+               .onUnmappableCharacter(CodingErrorAction.REPLACE);
+         bytes = ByteBuffer.allocate(ENCODE_BUFFER_SIZE);
+      }
+      encoder.reset();
+      while (encoder.encode(chars, bytes, true) == CoderResult.OVERFLOW)
+      {
+         drain();
+      }
+      while (encoder.flush(bytes) == CoderResult.OVERFLOW)
+      {
+         drain();
+      }
+      drain();
+   }
+
+   private void drain() throws IOException
+   {
+      out.write(bytes.array(), 0, bytes.position());
+      bytes.clear();
+   }
+
+   private static boolean contains(CharSequence chars, char c)
+   {
+      for (int i = 0; i < chars.length(); ++i)
+      {
+         if (chars.charAt(i) == c)
+         {
+            return true;
+         }
+      }
+      return false;
+   }
 }
@@ -53,6 +53,24 @@ public class UTF8Reader extends InputStreamReader
       super(new FileInputStream(file), ENCODING);
    }
 
+   /**
+    * Opens the file for reading, decompressing it on a background thread if
+    * it is GZIP compressed. See {@link Compression}.
+    */
+   public static UTF8Reader open(File file) throws IOException
+   {
+      InputStream in = Compression.open(file);
+      try
+      {
+         return new UTF8Reader(in);
+      }
+      catch (UnsupportedEncodingException e)
+      {
+         in.close();
+         throw e;
+      }
+   }
+
    public String readString() throws FileNotFoundException, IOException
    {
       char[] buffer = new char[BUFFER_SIZE];
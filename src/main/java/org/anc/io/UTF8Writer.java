@@ -19,6 +19,7 @@ package org.anc.io;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
@@ -65,4 +66,22 @@ public class UTF8Writer extends OutputStreamWriter
    {
       this(new FileOutputStream(file));
    }
+
+   /**
+    * Creates the file for writing. If the file name ends with
+    * {@link Compression#GZIP_EXTENSION} the output is GZIP compressed.
+    */
+   public static UTF8Writer create(File file) throws IOException
+   {
+      OutputStream out = Compression.create(file);
+      try
+      {
+         return new UTF8Writer(out);
+      }
+      catch (UnsupportedEncodingException e)
+      {
+         out.close();
+         throw e;
+      }
+   }
 }
@@ -35,7 +35,7 @@ import java.util.Set;
  * 
  * @author Keith Suderman
  * @version 1.0
- * @deprecated Use the org.anc.args.* classes instead.
+ * @deprecated Use {@link org.anc.constants.Arguments} instead.
  */
 @Deprecated
 public class Args
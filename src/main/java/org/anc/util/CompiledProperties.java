@@ -0,0 +1,336 @@
+/*-
+ * Copyright 2011 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.anc.io.AtomicFileOutputStream;
+
+/**
+ * A read only, memory mapped table of properties compiled from a
+ * {@link Properties} file.
+ * <p>
+ * Large generated property files, such as lookup tables with hundreds of
+ * thousands of entries, are expensive to parse on every start. The compiled
+ * form is a binary file with an open addressing hash index that is mapped
+ * into memory and searched in place, so opening it costs nothing and each
+ * lookup only touches the pages it needs.
+ * <p>
+ * The text file remains the source of truth. The compiled file records the
+ * size and modification time the text file had when it was compiled, and
+ * {@link #load(File)} compiles it to <tt>file.bin</tt> beside the text file
+ * whenever the compiled file is missing or either value differs, and maps
+ * the result:
+ * 
+ * <pre>
+ * CompiledProperties table = CompiledProperties.load(new File("lexicon.properties"));
+ * String tag = table.get("walked");
+ * </pre>
+ * 
+ * Compiled files are limited to 2GB. Instances are thread safe.
+ * 
+ * @author Keith Suderman
+ */
+public class CompiledProperties
+{
+   public static final String EXTENSION = ".bin";
+
+   /* File layout, all integers big endian:
+    *   int magic, int version, int size, int tableSize,
+    *   long sourceLength, long sourceModified (-1 if there is no source)
+    *   int[tableSize] offset of the entry in each slot, 0 if the slot is empty
+    *   entries: int hash, int keyLength, byte[] key, int valueLength, byte[] value
+    * Keys and values are UTF-8. tableSize is a power of two.
+    */
+   private static final int MAGIC = 0x414E4350;
+   private static final int VERSION = 2;
+   private static final int HEADER_SIZE = 32;
+   /**
+    * A source modified this recently when it is compiled could be changed
+    * again without its modification time changing, so it is recompiled the
+    * next time it is loaded.
+    */
+   private static final long RACY_MILLIS = 2000;
+
+   private final MappedByteBuffer buffer;
+   private final int size;
+   private final int mask;
+   private final long sourceLength;
+   private final long sourceModified;
+
+   private CompiledProperties(MappedByteBuffer buffer) throws IOException
+   {
+      this.buffer = buffer;
+      if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+      {
+         throw new IOException("Not a compiled properties file.");
+      }
+      if (buffer.getInt(4) != VERSION)
+      {
+         throw new IOException("Unsupported compiled properties version " + buffer.getInt(4));
+      }
+      this.size = buffer.getInt(8);
+      this.mask = buffer.getInt(12) - 1;
+      this.sourceLength = buffer.getLong(16);
+      this.sourceModified = buffer.getLong(24);
+   }
+
+   /**
+    * Returns the compiled form of the text properties file, compiling it
+    * first if the compiled file is missing or out of date.
+    */
+   public static CompiledProperties load(File source) throws IOException
+   {
+      File compiled = new File(source.getPath() + EXTENSION);
+      if (compiled.exists())
+      {
+         try
+         {
+            CompiledProperties table = map(compiled);
+            if (table.sourceLength == source.length() && table.sourceModified == source.lastModified())
+            {
+               return table;
+            }
+         }
+         catch (IOException e)
+         {
+            // Written by an older version, or damaged; compile it again.
+         }
+      }
+      compile(source, compiled);
+      return map(compiled);
+   }
+
+   /** Maps a file written by one of the <code>compile</code> methods. */
+   public static CompiledProperties map(File compiled) throws IOException
+   {
+      RandomAccessFile file = new RandomAccessFile(compiled, "r");
+      try
+      {
+         FileChannel channel = file.getChannel();
+         long length = channel.size();
+         if (length > Integer.MAX_VALUE)
+         {
+            throw new IOException("Compiled properties file is too large: " + compiled.getPath());
+         }
+         return new CompiledProperties(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+      }
+      finally
+      {
+         // The mapping remains valid after the channel is closed.
+         file.close();
+      }
+   }
+
+   /** Compiles the text properties file <code>source</code> to <code>target</code>. */
+   public static void compile(File source, File target) throws IOException
+   {
+      // The size and time are taken before the source is read so that a
+      // change made while it is being compiled is seen by the next load.
+      long length = source.length();
+      long modified = source.lastModified();
+      if (modified > System.currentTimeMillis() - RACY_MILLIS)
+      {
+         modified = -1;
+      }
+      Properties properties = new Properties();
+      properties.load(source);
+      compile(properties.map, target, length, modified);
+   }
+
+   public static void compile(Properties properties, File target) throws IOException
+   {
+      compile(properties.map, target);
+   }
+
+   /**
+    * Writes the compiled form of the map to <code>target</code>. The file is
+    * replaced atomically, so a process mapping the old file is not affected.
+    */
+   public static void compile(Map<String, String> map, File target) throws IOException
+   {
+      compile(map, target, -1, -1);
+   }
+
+   private static void compile(Map<String, String> map, File target, long sourceLength, long sourceModified)
+         throws IOException
+   {
+      int tableSize = Integer.highestOneBit(Math.max(map.size(), 1) * 2 - 1) << 1;
+      int[] table = new int[tableSize];
+      List<byte[]> keys = new ArrayList<byte[]>(map.size());
+      List<byte[]> values = new ArrayList<byte[]>(map.size());
+      List<Integer> hashes = new ArrayList<Integer>(map.size());
+      long offset = HEADER_SIZE + 4L * tableSize;
+      for (Map.Entry<String, String> entry : map.entrySet())
+      {
+         if (entry.getValue() == null)
+         {
+            continue;
+         }
+         byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+         byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+         int hash = entry.getKey().hashCode();
+         int slot = mix(hash) & (tableSize - 1);
+         while (table[slot] != 0)
+         {
+            slot = (slot + 1) & (tableSize - 1);
+         }
+         if (offset > Integer.MAX_VALUE)
+         {
+            throw new IOException("Too much data for a compiled properties file.");
+         }
+         table[slot] = (int) offset;
+         keys.add(key);
+         values.add(value);
+         hashes.add(hash);
+         offset += 12 + key.length + value.length;
+      }
+
+      AtomicFileOutputStream atomic = new AtomicFileOutputStream(target);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(atomic, 64 * 1024));
+      try
+      {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(keys.size());
+         out.writeInt(tableSize);
+         out.writeLong(sourceLength);
+         out.writeLong(sourceModified);
+         for (int slot : table)
+         {
+            out.writeInt(slot);
+         }
+         for (int i = 0; i < keys.size(); ++i)
+         {
+            out.writeInt(hashes.get(i));
+            out.writeInt(keys.get(i).length);
+            out.write(keys.get(i));
+            out.writeInt(values.get(i).length);
+            out.write(values.get(i));
+         }
+         out.flush();
+         atomic.commit();
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   /** Returns the number of properties in the table. */
+   public int size()
+   {
+      return size;
+   }
+
+   /** Returns the value of the property, or null if it is not in the table. */
+   public String get(String key)
+   {
+      int hash = key.hashCode();
+      byte[] bytes = null;
+      int slot = mix(hash) & mask;
+      while (true)
+      {
+         int entry = buffer.getInt(HEADER_SIZE + 4 * slot);
+         if (entry == 0)
+         {
+            return null;
+         }
+         if (buffer.getInt(entry) == hash)
+         {
+            if (bytes == null)
+            {
+               bytes = key.getBytes(StandardCharsets.UTF_8);
+            }
+            if (matches(entry + 4, bytes))
+            {
+               int valueStart = entry + 8 + bytes.length;
+               return read(valueStart + 4, buffer.getInt(valueStart));
+            }
+         }
+         slot = (slot + 1) & mask;
+      }
+   }
+
+   public boolean containsKey(String key)
+   {
+      return get(key) != null;
+   }
+
+   /** Copies every property into a new {@link Properties} object. */
+   public Properties toProperties()
+   {
+      Properties properties = new Properties();
+      int position = HEADER_SIZE + 4 * (mask + 1);
+      for (int i = 0; i < size; ++i)
+      {
+         int keyLength = buffer.getInt(position + 4);
+         String key = read(position + 8, keyLength);
+         int valueStart = position + 8 + keyLength;
+         int valueLength = buffer.getInt(valueStart);
+         properties.set(key, read(valueStart + 4, valueLength));
+         position = valueStart + 4 + valueLength;
+      }
+      return properties;
+   }
+
+   private boolean matches(int position, byte[] key)
+   {
+      if (buffer.getInt(position) != key.length)
+      {
+         return false;
+      }
+      position += 4;
+      for (int i = 0; i < key.length; ++i)
+      {
+         if (buffer.get(position + i) != key[i])
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private String read(int position, int length)
+   {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; ++i)
+      {
+         bytes[i] = buffer.get(position + i);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   /** Spreads the bits of the hash code so linear probing works well. */
+   private static int mix(int h)
+   {
+      h ^= (h >>> 16);
+      h *= 0x85EBCA6B;
+      h ^= (h >>> 13);
+      return h;
+   }
+}
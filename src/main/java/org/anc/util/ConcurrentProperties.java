@@ -0,0 +1,318 @@
+/*-
+ * Copyright 2011 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.anc.io.AtomicFileOutputStream;
+import org.anc.io.UTF8Reader;
+import org.anc.io.UTF8Writer;
+
+/**
+ * A thread safe version of {@link Properties} for configuration that is read
+ * by many threads and occasionally reloaded.
+ * <p>
+ * The properties are held in an immutable snapshot that is replaced
+ * atomically. Readers never lock: {@link #get(String)} is a volatile read and
+ * a hash lookup. {@link #load(File)} parses the file into a new snapshot and
+ * swaps it in, so readers see either all of the old values or all of the new
+ * ones, never an empty or partially loaded table. {@link #set(String, String)}
+ * copies the table, so it is meant for occasional updates.
+ * <p>
+ * The typed getters parse a value the first time it is requested and cache
+ * the result in the snapshot, so repeated calls do not parse the string again.
+ * A value that is not a valid number is treated as missing: the getter
+ * returns its default value, and the failure is cached too.
+ * 
+ * <pre>
+ * ConcurrentProperties config = new ConcurrentProperties();
+ * config.load(new File("server.properties"));
+ * int threads = config.getInt("threads", 4);
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class ConcurrentProperties
+{
+   /* Cached in place of a value that could not be parsed as the type. */
+   private static final Object INVALID_INT = new Object();
+   private static final Object INVALID_LONG = new Object();
+   private static final Object INVALID_DOUBLE = new Object();
+
+   private volatile Snapshot snapshot = new Snapshot(new HashMap<String, String>());
+
+   public ConcurrentProperties()
+   {
+   }
+
+   public ConcurrentProperties(Map<String, String> values)
+   {
+      snapshot = new Snapshot(new HashMap<String, String>(values));
+   }
+
+   public String get(String key)
+   {
+      return snapshot.map.get(key);
+   }
+
+   public String get(String key, String defaultValue)
+   {
+      String value = snapshot.map.get(key);
+      return value == null ? defaultValue : value;
+   }
+
+   public int getInt(String key, int defaultValue)
+   {
+      Snapshot current = snapshot;
+      Object cached = current.parsed.get(key);
+      if (cached instanceof Integer)
+      {
+         return (Integer) cached;
+      }
+      if (cached == INVALID_INT)
+      {
+         return defaultValue;
+      }
+      String value = current.map.get(key);
+      if (value == null)
+      {
+         return defaultValue;
+      }
+      Integer result;
+      try
+      {
+         result = Integer.valueOf(value.trim());
+      }
+      catch (NumberFormatException e)
+      {
+         current.parsed.put(key, INVALID_INT);
+         return defaultValue;
+      }
+      current.parsed.put(key, result);
+      return result;
+   }
+
+   public long getLong(String key, long defaultValue)
+   {
+      Snapshot current = snapshot;
+      Object cached = current.parsed.get(key);
+      if (cached instanceof Long)
+      {
+         return (Long) cached;
+      }
+      if (cached == INVALID_LONG)
+      {
+         return defaultValue;
+      }
+      String value = current.map.get(key);
+      if (value == null)
+      {
+         return defaultValue;
+      }
+      Long result;
+      try
+      {
+         result = Long.valueOf(value.trim());
+      }
+      catch (NumberFormatException e)
+      {
+         current.parsed.put(key, INVALID_LONG);
+         return defaultValue;
+      }
+      current.parsed.put(key, result);
+      return result;
+   }
+
+   public double getDouble(String key, double defaultValue)
+   {
+      Snapshot current = snapshot;
+      Object cached = current.parsed.get(key);
+      if (cached instanceof Double)
+      {
+         return (Double) cached;
+      }
+      if (cached == INVALID_DOUBLE)
+      {
+         return defaultValue;
+      }
+      String value = current.map.get(key);
+      if (value == null)
+      {
+         return defaultValue;
+      }
+      Double result;
+      try
+      {
+         result = Double.valueOf(value.trim());
+      }
+      catch (NumberFormatException e)
+      {
+         current.parsed.put(key, INVALID_DOUBLE);
+         return defaultValue;
+      }
+      current.parsed.put(key, result);
+      return result;
+   }
+
+   public boolean getBoolean(String key, boolean defaultValue)
+   {
+      Snapshot current = snapshot;
+      Object cached = current.parsed.get(key);
+      if (cached instanceof Boolean)
+      {
+         return (Boolean) cached;
+      }
+      String value = current.map.get(key);
+      if (value == null)
+      {
+         return defaultValue;
+      }
+      Boolean result = Boolean.valueOf(value.trim());
+      current.parsed.put(key, result);
+      return result;
+   }
+
+   /**
+    * Sets the property, or removes it if <code>value</code> is null. The
+    * table is copied, so use {@link #load(File)} or {@link #replace(Map)} for
+    * bulk changes.
+    */
+   public synchronized void set(String key, String value)
+   {
+      Map<String, String> map = new HashMap<String, String>(snapshot.map);
+      if (value == null)
+      {
+         map.remove(key);
+      }
+      else
+      {
+         map.put(key, value);
+      }
+      snapshot = new Snapshot(map);
+   }
+
+   /** Replaces all of the properties at once. */
+   public synchronized void replace(Map<String, String> values)
+   {
+      snapshot = new Snapshot(new HashMap<String, String>(values));
+   }
+
+   public synchronized void clear()
+   {
+      snapshot = new Snapshot(new HashMap<String, String>());
+   }
+
+   public int size()
+   {
+      return snapshot.map.size();
+   }
+
+   public Iterable<String> keys()
+   {
+      return snapshot.map.keySet();
+   }
+
+   /**
+    * Returns the current properties. The map is immutable and does not change
+    * when the properties are set or reloaded.
+    */
+   public Map<String, String> snapshot()
+   {
+      return snapshot.map;
+   }
+
+   public void load(String path) throws IOException
+   {
+      load(new File(path));
+   }
+
+   public void load(File file) throws IOException
+   {
+      Map<String, String> map = new HashMap<String, String>();
+      if (file.length() >= Properties.MAPPED_LOAD_THRESHOLD)
+      {
+         PropertiesFormat.parseMapped(file, map);
+      }
+      else
+      {
+         UTF8Reader reader = new UTF8Reader(file);
+         try
+         {
+            PropertiesFormat.parse(reader, map);
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+      swap(map);
+   }
+
+   public void load(InputStream stream) throws IOException
+   {
+      Map<String, String> map = new HashMap<String, String>();
+      PropertiesFormat.parse(new UTF8Reader(stream), map);
+      swap(map);
+   }
+
+   /** Saves the properties atomically, see {@link Properties#saveAtomic(File)}. */
+   public void save(File file) throws IOException
+   {
+      Map<String, String> map = snapshot.map;
+      AtomicFileOutputStream out = new AtomicFileOutputStream(file);
+      PrintWriter writer = new PrintWriter(new BufferedWriter(new UTF8Writer(out)));
+      try
+      {
+         PropertiesFormat.write(map, writer);
+         writer.flush();
+         if (writer.checkError())
+         {
+            throw new IOException("Unable to write " + file.getPath());
+         }
+         out.commit();
+      }
+      finally
+      {
+         writer.close();
+      }
+   }
+
+   private synchronized void swap(Map<String, String> map)
+   {
+      snapshot = new Snapshot(map);
+   }
+
+   /** An immutable table of properties and the values parsed from it. */
+   private static class Snapshot
+   {
+      final Map<String, String> map;
+      final ConcurrentHashMap<String, Object> parsed = new ConcurrentHashMap<String, Object>();
+
+      Snapshot(Map<String, String> map)
+      {
+         this.map = Collections.unmodifiableMap(map);
+      }
+   }
+}
@@ -0,0 +1,244 @@
+/*-
+ * Copyright 2009 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link FileMap} that maps symbolic paths onto several named roots at once.
+ * <p>
+ * Resolved paths are kept in a bounded LRU cache for each root so that
+ * mapping the same document to several outputs does not repeatedly build
+ * strings and path objects. The bulk {@link #mapAll(Iterable)} methods also
+ * create any missing parent directories, checking each directory only once no
+ * matter how many files it contains.
+ * <p>
+ * The named roots are separate from the single root inherited from
+ * {@link FileMap}: {@link #setRoot(String)} and {@link #mapFile(String)}
+ * behave exactly as they do in a plain FileMap, never consult the named
+ * roots, and the inherited root is not included by {@link #mapAll(Iterable)}.
+ * 
+ * <pre>
+ * MultiRootFileMap map = new MultiRootFileMap();
+ * map.addRoot("xml", "/corpus/xml");
+ * map.addRoot("txt", "/corpus/txt");
+ * Path xml = map.map("xml", "written/file.xml");
+ * </pre>
+ * 
+ * @author Keith Suderman
+ */
+public class MultiRootFileMap extends FileMap
+{
+   public static final int DEFAULT_CACHE_SIZE = 1024;
+
+   private final int cacheSize;
+   private final Map<String, Root> roots = new LinkedHashMap<String, Root>();
+
+   public MultiRootFileMap()
+   {
+      this(DEFAULT_CACHE_SIZE);
+   }
+
+   /**
+    * @param cacheSize The maximum number of resolved paths cached for each
+    *           root.
+    */
+   public MultiRootFileMap(int cacheSize)
+   {
+      super();
+      if (cacheSize < 0)
+      {
+         throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+      }
+      this.cacheSize = cacheSize;
+   }
+
+   public synchronized void addRoot(String name, String root)
+   {
+      addRoot(name, Paths.get(root));
+   }
+
+   public synchronized void addRoot(String name, Path root)
+   {
+      roots.put(name, new Root(root, cacheSize));
+   }
+
+   public synchronized void removeRoot(String name)
+   {
+      roots.remove(name);
+   }
+
+   public synchronized Set<String> getRootNames()
+   {
+      return new HashSet<String>(roots.keySet());
+   }
+
+   /**
+    * Maps the symbolic path onto the named root.
+    * 
+    * @throws IllegalArgumentException if no root has been added with that
+    *            name.
+    */
+   public synchronized Path map(String rootName, String path)
+   {
+      return getRoot(rootName).resolve(path);
+   }
+
+   public File mapFile(String rootName, String path)
+   {
+      return map(rootName, path).toFile();
+   }
+
+   /**
+    * Maps every path onto the named root and creates any parent directories
+    * that do not exist yet.
+    */
+   public List<Path> mapAll(String rootName, Iterable<String> paths) throws IOException
+   {
+      List<Path> result = new ArrayList<Path>();
+      Set<Path> created = new HashSet<Path>();
+      synchronized (this)
+      {
+         Root root = getRoot(rootName);
+         for (String path : paths)
+         {
+            result.add(root.resolve(path));
+         }
+      }
+      for (Path path : result)
+      {
+         createParent(path, created);
+      }
+      return result;
+   }
+
+   /**
+    * Maps every path onto every root and creates any parent directories
+    * that do not exist yet.
+    * 
+    * @return The mapped paths for each root, keyed on the name of the root
+    *         and in the same order as the input.
+    */
+   public Map<String, List<Path>> mapAll(Iterable<String> paths) throws IOException
+   {
+      Map<String, List<Path>> result = new LinkedHashMap<String, List<Path>>();
+      synchronized (this)
+      {
+         for (String name : roots.keySet())
+         {
+            result.put(name, new ArrayList<Path>());
+         }
+         // The paths are only iterated once so that single pass iterables
+         // can be used.
+         for (String path : paths)
+         {
+            for (Map.Entry<String, Root> entry : roots.entrySet())
+            {
+               result.get(entry.getKey()).add(entry.getValue().resolve(path));
+            }
+         }
+      }
+      Set<Path> created = new HashSet<Path>();
+      for (List<Path> list : result.values())
+      {
+         for (Path path : list)
+         {
+            createParent(path, created);
+         }
+      }
+      return result;
+   }
+
+   private static void createParent(Path path, Set<Path> created) throws IOException
+   {
+      Path parent = path.getParent();
+      if (parent != null && created.add(parent))
+      {
+         Files.createDirectories(parent);
+      }
+   }
+
+   private Root getRoot(String name)
+   {
+      Root root = roots.get(name);
+      if (root == null)
+      {
+         throw new IllegalArgumentException("No root named " + name);
+      }
+      return root;
+   }
+
+   /** A root directory and its cache of resolved paths. */
+   private static class Root
+   {
+      final Path directory;
+      final Cache cache;
+
+      Root(Path directory, int capacity)
+      {
+         this.directory = directory;
+         this.cache = new Cache(capacity);
+      }
+
+      Path resolve(String path)
+      {
+         Path result = cache.get(path);
+         if (result == null)
+         {
+            int start = 0;
+            while (start < path.length() && path.charAt(start) == '/')
+            {
+               ++start;
+            }
+            result = directory.resolve(path.substring(start));
+            if (cache.capacity > 0)
+            {
+               cache.put(path, result);
+            }
+         }
+         return result;
+      }
+   }
+
+   @SuppressWarnings("serial")
+   private static class Cache extends LinkedHashMap<String, Path>
+   {
+      final int capacity;
+
+      Cache(int capacity)
+      {
+         super(16, 0.75f, true);
+         this.capacity = capacity;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Path> eldest)
+      {
+         return size() > capacity;
+      }
+   }
+}
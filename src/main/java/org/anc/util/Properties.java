@@ -19,6 +19,7 @@ package org.anc.util;
 import java.io.*;
 import java.util.*;
 
+import org.anc.io.AtomicFileOutputStream;
 import org.anc.io.UTF8Reader;
 import org.anc.io.UTF8Writer;
 
@@ -28,12 +29,20 @@ import org.anc.io.UTF8Writer;
  * <p>
  * Unlike the Java Properties class this class can only load/store to a line
  * based UTF-8 text file. Serialization to/from XML files is not supported.
+ * Properties are saved sorted by key so the output is deterministic. Saved
+ * files start with a <tt>#format=2</tt> comment, and in those files backslash,
+ * newline and carriage return are escaped as <tt>\\</tt>, <tt>\n</tt> and
+ * <tt>\r</tt>, and '=' is escaped in keys. In files without that first line
+ * a backslash is an ordinary character, so existing files load unchanged.
  * 
  * @author Keith Suderman
  *
  */
 public class Properties
 {
+   /** Files at least this large are memory mapped by {@link #load(File)}. */
+   public static final long MAPPED_LOAD_THRESHOLD = 1024 * 1024;
+
    protected HashMap<String,String> map;
    
    public Properties()
@@ -108,28 +117,67 @@ public class Properties
       save(new UTF8Writer(stream));
    }
    
-   protected void save(UTF8Writer utf8)
+   /**
+    * Saves the properties to a temporary file that is renamed to
+    * <code>file</code> once it has been written completely. If the save is
+    * interrupted the previous contents of <code>file</code> are left intact.
+    */
+   public void saveAtomic(File file) throws IOException
    {
-      PrintWriter writer = new PrintWriter(utf8);
-      for (String key : map.keySet())
+      AtomicFileOutputStream out = new AtomicFileOutputStream(file);
+      PrintWriter writer = new PrintWriter(new BufferedWriter(new UTF8Writer(out)));
+      try
       {
-         String value = map.get(key);
-         if (value != null)
+         write(writer);
+         writer.flush();
+         if (writer.checkError())
          {
-            writer.println(key + "=" + value);
+            throw new IOException("Unable to write " + file.getPath());
          }
+         out.commit();
+      }
+      finally
+      {
+         writer.close();
       }
+   }
+
+   protected void save(UTF8Writer utf8)
+   {
+      PrintWriter writer = new PrintWriter(new BufferedWriter(utf8));
+      write(writer);
       writer.close();
    }
+
+   /**
+    * Writes the properties sorted by key, escaping any characters that would
+    * otherwise change how the file is parsed.
+    */
+   protected void write(PrintWriter writer)
+   {
+      PropertiesFormat.write(map, writer);
+   }
    
    public void load(String path) throws IOException, UnsupportedEncodingException
    {
-      load(new UTF8Reader(path));
+      load(new File(path));
    }
    
+   /**
+    * Loads the properties from the file. Files of at least 
+    * {@link #MAPPED_LOAD_THRESHOLD} bytes are memory mapped and parsed 
+    * directly from the mapped pages.
+    */
    public void load(File file) throws IOException, UnsupportedEncodingException
    {
-      load(new UTF8Reader(file));
+      if (file.length() >= MAPPED_LOAD_THRESHOLD)
+      {
+         loadMapped(file);
+      }
+      else
+      {
+         load(new UTF8Reader(file));
+      }
    }
    
    public void load(InputStream stream) throws IOException, UnsupportedEncodingException
@@ -137,38 +185,28 @@ public class Properties
       load(new UTF8Reader(stream));
    }
    
+   /**
+    * Loads the properties by memory mapping the file rather than reading it
+    * through a stream.
+    */
+   public void loadMapped(File file) throws IOException
+   {
+      map.clear();
+      PropertiesFormat.parseMapped(file, map);
+   }
+
    protected void load(UTF8Reader utf8) throws IOException
    {
       map.clear();
-      BufferedReader reader = new BufferedReader(utf8);
       try
       {
-         String line = reader.readLine();
-         while (line != null)
-         {
-            if (!line.startsWith("#") && line.length() > 0)
-            {
-               int equal = line.indexOf('=');
-               if (equal < 0)
-               {
-                  throw new IOException("Malformed properties file. No '=' found in line: " + line);
-               }
-               if (equal == line.length() - 1)
-               {
-                  throw new IOException("Malformed properties file. No value specified in line: " + line);
-               }
-               String key = line.substring(0, equal).trim();
-               String value = line.substring(equal + 1);
-               map.put(key, value);
-            }
-            line = reader.readLine();
-         }
+         PropertiesFormat.parse(utf8, map);
       }
       finally
       {
-         if (reader != null) try
+         if (utf8 != null) try
          {
-            reader.close();
+            utf8.close();
          }
          catch (IOException e)
          {
@@ -0,0 +1,395 @@
+/*-
+ * Copyright 2011 The American National Corpus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.anc.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Reads and writes the line based text format used by {@link Properties}.
+ * <p>
+ * Each line is <tt>key=value</tt>. Lines that start with '#' are comments
+ * and blank lines are ignored. Keys are trimmed, values are not.
+ * <p>
+ * A backslash is an ordinary character unless the first line of the file is
+ * the {@link #FORMAT_HEADER} comment, so existing files containing Windows
+ * paths such as <tt>C:\temp</tt> or <tt>\\server\share</tt> load unchanged.
+ * Files written by {@link #write(Map, PrintWriter)} start with the header,
+ * and in them the following escapes are recognized in keys and values:
+ * <tt>\\</tt>, <tt>\n</tt>, <tt>\r</tt>, <tt>\t</tt>, <tt>\=</tt> and
+ * <tt>\#</tt>. Any other backslash is kept as is.
+ * <p>
+ * The parser works a character at a time on whatever blocks of text it is
+ * given, so it never builds intermediate line strings and can be fed from a
+ * Reader or from a memory mapped file.
+ * 
+ * @author Keith Suderman
+ */
+final class PropertiesFormat
+{
+   /**
+    * The first line of a file whose keys and values may contain escapes.
+    */
+   static final String FORMAT_HEADER = "#format=2";
+
+   private static final int BUFFER_SIZE = 16 * 1024;
+   /** The size of the window mapped at a time when loading mapped files. */
+   private static final int MAP_SIZE = 64 * 1024 * 1024;
+
+   private PropertiesFormat()
+   {
+   }
+
+   /** Writes the format header and the properties sorted by key. */
+   static void write(Map<String, String> map, PrintWriter writer)
+   {
+      writer.write(FORMAT_HEADER);
+      writer.write('\n');
+      String[] keys = map.keySet().toArray(new String[map.size()]);
+      Arrays.sort(keys);
+      for (String key : keys)
+      {
+         String value = map.get(key);
+         if (value != null)
+         {
+            escape(key, true, writer);
+            writer.write('=');
+            escape(value, false, writer);
+            writer.write('\n');
+         }
+      }
+   }
+
+   private static void escape(String s, boolean isKey, PrintWriter writer)
+   {
+      int length = s.length();
+      int start = 0;
+      for (int i = 0; i < length; ++i)
+      {
+         char c = s.charAt(i);
+         String escape;
+         switch (c)
+         {
+            case '\\':
+               escape = "\\\\";
+               break;
+            case '\n':
+               escape = "\\n";
+               break;
+            case '\r':
+               escape = "\\r";
+               break;
+            case '=':
+               escape = isKey ? "\\=" : null;
+               break;
+            case '#':
+               escape = isKey && i == 0 ? "\\#" : null;
+               break;
+            default:
+               escape = null;
+               break;
+         }
+         if (escape != null)
+         {
+            writer.write(s, start, i - start);
+            writer.write(escape);
+            start = i + 1;
+         }
+      }
+      writer.write(s, start, length - start);
+   }
+
+   static void parse(Reader reader, Map<String, String> map) throws IOException
+   {
+      Parser parser = new Parser(map);
+      char[] buffer = new char[BUFFER_SIZE];
+      int n = reader.read(buffer);
+      while (n >= 0)
+      {
+         parser.parse(buffer, 0, n);
+         n = reader.read(buffer);
+      }
+      parser.finish();
+   }
+
+   /**
+    * Parses a UTF-8 file by mapping it into memory a window at a time and
+    * decoding straight from the mapped pages.
+    */
+   static void parseMapped(File file, Map<String, String> map) throws IOException
+   {
+      Parser parser = new Parser(map);
+      CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try
+      {
+         FileChannel channel = raf.getChannel();
+         long size = channel.size();
+         if (size == 0)
+         {
+            return;
+         }
+         long position = 0;
+         while (position < size)
+         {
+            long length = Math.min(MAP_SIZE, size - position);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            boolean last = position + length == size;
+            decode(decoder, bytes, chars, parser, last);
+            // Bytes of a character split across windows are decoded again
+            // at the start of the next window.
+            position += length - bytes.remaining();
+            if (!last && bytes.remaining() == length)
+            {
+               throw new CharacterCodingException();
+            }
+         }
+         decoder.flush(chars);
+         flush(chars, parser);
+      }
+      finally
+      {
+         raf.close();
+      }
+      parser.finish();
+   }
+
+   private static void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, Parser parser,
+         boolean last) throws IOException
+   {
+      while (true)
+      {
+         CoderResult result = decoder.decode(bytes, chars, last);
+         if (result.isOverflow())
+         {
+            flush(chars, parser);
+         }
+         else if (result.isUnderflow())
+         {
+            flush(chars, parser);
+            return;
+         }
+         else
+         {
+            result.throwException();
+         }
+      }
+   }
+
+   private static void flush(CharBuffer chars, Parser parser) throws IOException
+   {
+      chars.flip();
+      parser.parse(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+      chars.clear();
+   }
+
+   /** An incremental, character level parser for the properties format. */
+   static class Parser
+   {
+      private static final int LINE_START = 0;
+      private static final int COMMENT = 1;
+      private static final int KEY = 2;
+      private static final int VALUE = 3;
+
+      private final Map<String, String> map;
+      private final StringBuilder key = new StringBuilder();
+      private final StringBuilder value = new StringBuilder();
+      private int state = LINE_START;
+      private boolean escaped = false;
+      /** True once the format header has been seen. */
+      private boolean escapes = false;
+      /** True until the end of the first line. */
+      private boolean firstLine = true;
+      /** The first line, while it may still be the format header. */
+      private final StringBuilder header = new StringBuilder();
+
+      Parser(Map<String, String> map)
+      {
+         this.map = map;
+      }
+
+      void parse(char[] chars, int offset, int length) throws IOException
+      {
+         int end = offset + length;
+         for (int i = offset; i < end; ++i)
+         {
+            char c = chars[i];
+            switch (state)
+            {
+               case LINE_START:
+                  if (c == '#')
+                  {
+                     state = COMMENT;
+                     if (firstLine)
+                     {
+                        header.append(c);
+                     }
+                  }
+                  else if (c != '\n' && c != '\r')
+                  {
+                     firstLine = false;
+                     state = KEY;
+                     key(c);
+                  }
+                  break;
+               case COMMENT:
+                  if (c == '\n' || c == '\r')
+                  {
+                     endComment();
+                     state = LINE_START;
+                  }
+                  else if (firstLine && header.length() <= FORMAT_HEADER.length())
+                  {
+                     header.append(c);
+                  }
+                  break;
+               case KEY:
+                  key(c);
+                  break;
+               case VALUE:
+                  value(c);
+                  break;
+            }
+         }
+      }
+
+      private void endComment()
+      {
+         if (firstLine)
+         {
+            escapes = FORMAT_HEADER.contentEquals(header);
+            firstLine = false;
+         }
+      }
+
+      private void key(char c) throws IOException
+      {
+         if (escaped)
+         {
+            unescape(c, key);
+         }
+         else if (c == '\\' && escapes)
+         {
+            escaped = true;
+         }
+         else if (c == '=')
+         {
+            state = VALUE;
+         }
+         else if (c == '\n' || c == '\r')
+         {
+            throw new IOException("Malformed properties file. No '=' found in line: " + key);
+         }
+         else
+         {
+            key.append(c);
+         }
+      }
+
+      private void value(char c) throws IOException
+      {
+         if (escaped)
+         {
+            unescape(c, value);
+         }
+         else if (c == '\\' && escapes)
+         {
+            escaped = true;
+         }
+         else if (c == '\n' || c == '\r')
+         {
+            endLine();
+         }
+         else
+         {
+            value.append(c);
+         }
+      }
+
+      private void unescape(char c, StringBuilder buffer)
+      {
+         escaped = false;
+         switch (c)
+         {
+            case 'n':
+               buffer.append('\n');
+               break;
+            case 'r':
+               buffer.append('\r');
+               break;
+            case 't':
+               buffer.append('\t');
+               break;
+            case '\\':
+            case '=':
+            case '#':
+               buffer.append(c);
+               break;
+            default:
+               buffer.append('\\').append(c);
+               break;
+         }
+      }
+
+      private void endLine() throws IOException
+      {
+         if (value.length() == 0)
+         {
+            throw new IOException("Malformed properties file. No value specified in line: " + key + "=");
+         }
+         map.put(key.toString().trim(), value.toString());
+         key.setLength(0);
+         value.setLength(0);
+         state = LINE_START;
+      }
+
+      /** Called at the end of the input to handle a final unterminated line. */
+      void finish() throws IOException
+      {
+         if (escaped)
+         {
+            (state == KEY ? key : value).append('\\');
+            escaped = false;
+         }
+         if (state == KEY)
+         {
+            throw new IOException("Malformed properties file. No '=' found in line: " + key);
+         }
+         if (state == VALUE)
+         {
+            endLine();
+         }
+      }
+   }
+}
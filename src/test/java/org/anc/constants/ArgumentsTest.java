@@ -0,0 +1,177 @@
+package org.anc.constants;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.anc.io.UTF8Writer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ArgumentsTest
+{
+   private File file;
+
+   @Before
+   public void setup() throws IOException
+   {
+      file = File.createTempFile("arguments", ".txt");
+   }
+
+   @After
+   public void cleanup()
+   {
+      file.delete();
+   }
+
+   @Test
+   public void testTypes()
+   {
+      Parameters p = new Parameters();
+      Arguments arguments = new Arguments(p);
+      boolean valid = arguments.parse("-threads=8", "--buffer", "64k", "-verbose", "-output=/tmp/out",
+            "-timeout=2m", "-unit=hours", "a.txt", "b.txt");
+      arguments.printErrors();
+      assertTrue(valid);
+      assertEquals(8, p.threads);
+      assertEquals(65536L, p.buffer);
+      assertTrue(p.verbose);
+      assertEquals(Paths.get("/tmp/out"), p.output);
+      assertEquals(120L, p.timeout);
+      assertEquals(TimeUnit.HOURS, p.unit);
+      assertEquals(Arrays.asList("a.txt", "b.txt"), p.inputs);
+   }
+
+   @Test
+   public void testRepeated()
+   {
+      Parameters p = new Parameters();
+      Arguments arguments = new Arguments(p);
+      assertTrue(arguments.parse("-output=x", "-tag=one", "-tag", "two", "--", "-not-an-option"));
+      assertEquals(Arrays.asList("one", "two"), p.tags);
+      assertEquals(Arrays.asList("-not-an-option"), p.inputs);
+   }
+
+   @Test
+   public void testErrors()
+   {
+      Parameters p = new Parameters();
+      Arguments arguments = new Arguments(p);
+      assertFalse(arguments.parse("-threads=many", "-unknown", "-tag"));
+      List<String> errors = arguments.getErrors();
+      assertEquals(4, errors.size());
+      assertEquals("Invalid value for -threads: many", errors.get(0));
+      assertEquals("Unknown parameter -unknown", errors.get(1));
+      assertEquals("Missing value for -tag", errors.get(2));
+      assertEquals("Required argument -output is missing.", errors.get(3));
+   }
+
+   @Test
+   public void testArgumentsFile() throws IOException
+   {
+      PrintWriter writer = new PrintWriter(new UTF8Writer(file));
+      writer.println("# options and inputs");
+      writer.println("-threads=2");
+      writer.println();
+      for (int i = 0; i < 1000; ++i)
+      {
+         writer.println("input" + i + ".xml");
+      }
+      writer.close();
+
+      Parameters p = new Parameters();
+      Arguments arguments = new Arguments(p);
+      assertTrue(arguments.parse("-output=x", "@" + file.getPath(), "last.xml"));
+      assertEquals(2, p.threads);
+      assertEquals(1001, p.inputs.size());
+      assertEquals("input0.xml", p.inputs.get(0));
+      assertEquals("last.xml", p.inputs.get(1000));
+
+      assertFalse(arguments.parse("-output=x", "@missing.txt"));
+   }
+
+   @Test
+   public void testValueNotExpanded()
+   {
+      Parameters p = new Parameters();
+      Arguments arguments = new Arguments(p);
+      assertTrue(arguments.parse("-output", "@out", "-tag", "@" + file.getPath()));
+      assertEquals(Paths.get("@out"), p.output);
+      assertEquals(Arrays.asList("@" + file.getPath()), p.tags);
+   }
+
+   @Test
+   public void testUnsupportedField()
+   {
+      try
+      {
+         new Arguments(new FileParameters());
+         fail("Accepted an option that can not be bound.");
+      }
+      catch (IllegalArgumentException e)
+      {
+         assertTrue(e.getMessage().contains("input"));
+      }
+      try
+      {
+         new Arguments(new RawListParameters());
+         fail("Accepted a @Remaining field that can not be bound.");
+      }
+      catch (IllegalArgumentException e)
+      {
+         assertTrue(e.getMessage().contains("inputs"));
+      }
+   }
+}
+
+class FileParameters
+{
+   @Arguments.Option
+   public File input;
+}
+
+class RawListParameters
+{
+   @SuppressWarnings("rawtypes")
+   @Arguments.Remaining
+   public List inputs;
+}
+
+class Parameters
+{
+   @Arguments.Option(description = "Number of worker threads.")
+   public int threads = 1;
+
+   @Arguments.Option
+   public long buffer = 1024;
+
+   @Arguments.Option
+   public boolean verbose = false;
+
+   @Arguments.Option(required = true)
+   public Path output;
+
+   @Arguments.Option @Constants.Duration(TimeUnit.SECONDS)
+   public long timeout = 30;
+
+   @Arguments.Option
+   public TimeUnit unit = TimeUnit.SECONDS;
+
+   @Arguments.Option("tag")
+   public List<String> tags = new ArrayList<String>();
+
+   @Arguments.Remaining
+   public List<String> inputs;
+
+   /** Not an option. */
+   public String other;
+}
@@ -1,6 +1,6 @@
 package org.anc.constants;
 
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 import java.io.IOException;
 
@@ -124,6 +124,43 @@ class FileVariables extends Constants
    }
 }
 
+class ForwardVariables extends Constants
+{
+   @Default("${ROOT}/data/${NAME}.txt")
+   public final String DATA = null;
+
+   @Default("${sys:org.anc.constants.home}/corpus")
+   public final String ROOT = null;
+
+   @Default("file")
+   public final String NAME = null;
+
+   @Default("${UNKNOWN}/$UNKNOWN")
+   public final String UNKNOWN_VALUE = null;
+
+   public ForwardVariables()
+   {
+      super.init();
+   }
+}
+
+class Cycle extends Constants
+{
+   @Default("${B}")
+   public final String A = null;
+
+   @Default("${C}/x")
+   public final String B = null;
+
+   @Default("$A")
+   public final String C = null;
+
+   public Cycle()
+   {
+      super.init();
+   }
+}
+
 public class ConstantsTest 
 {
    // This isn't so much a unit test as it is a way to log on remote servers
@@ -150,6 +187,30 @@ public class ConstantsTest
       
    }
    
+   @Test
+   public void testForwardVariables()
+   {
+      System.setProperty("org.anc.constants.home", "/home");
+      ForwardVariables V = new ForwardVariables();
+      check(V.ROOT, "/home/corpus");
+      check(V.DATA, "/home/corpus/data/file.txt");
+      check(V.UNKNOWN_VALUE, "${UNKNOWN}/$UNKNOWN");
+   }
+
+   @Test
+   public void testCycle()
+   {
+      try
+      {
+         new Cycle();
+         fail("Circular reference not detected.");
+      }
+      catch (IllegalStateException e)
+      {
+         assertEquals("Circular variable reference: A -> B -> C -> A", e.getMessage());
+      }
+   }
+
    @Test
    public void testFileVariables()
    {
@@ -213,6 +274,21 @@ public class ConstantsTest
       assertTrue(f.F_PI == 3.14f);
    }
    
+   @Test
+   public void testBindingCached()
+   {
+      Binding binding = Binding.of(F.class);
+      assertEquals(Binding.Type.FLOAT, binding.get("F_PI").type);
+      assertTrue(binding == Binding.of(F.class));
+      assertEquals(2, binding.slots.length);
+      F f1 = new F();
+      F f2 = new F();
+      assertTrue(f1.D_PI == 3.14);
+      assertTrue(f2.F_PI == 3.14f);
+      // Defaults without variables are parsed once and shared.
+      assertSame(f1.D_PI, f2.D_PI);
+   }
+
    protected void check(String actual, String expected)
    {
 //      System.out.println(actual + " : " + expected);
@@ -0,0 +1,77 @@
+package org.anc.constants;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LayeredTest
+{
+   public static final String PROPERTY = "org.anc.constants.layered";
+   private static final String OVERRIDE = Layered.class.getName() + ".B";
+
+   private File file;
+
+   @Before
+   public void setup() throws IOException
+   {
+      file = File.createTempFile("layered", ".properties");
+      FileWriter writer = new FileWriter(file);
+      try
+      {
+         writer.write("A=file\nB=file\n");
+      }
+      finally
+      {
+         writer.close();
+      }
+      System.setProperty(PROPERTY, file.getPath());
+   }
+
+   @After
+   public void cleanup()
+   {
+      System.clearProperty(PROPERTY);
+      System.clearProperty(OVERRIDE);
+      file.delete();
+   }
+
+   @Test
+   public void testLayers()
+   {
+      System.setProperty(OVERRIDE, "system");
+      Layered layered = new Layered();
+      assertEquals("file", layered.A);
+      assertEquals("system", layered.B);
+      assertEquals("default", layered.C);
+      assertEquals(file, layered.getSource());
+   }
+
+   @Test
+   public void testParsedOnce() throws IOException
+   {
+      assertSame(PropertySources.file(file), PropertySources.file(file));
+   }
+}
+
+class Layered extends Constants
+{
+   @Default("default")
+   public final String A = null;
+
+   @Default("default")
+   public final String B = null;
+
+   @Default("default")
+   public final String C = null;
+
+   public Layered()
+   {
+      super.init(LayeredTest.PROPERTY);
+   }
+}
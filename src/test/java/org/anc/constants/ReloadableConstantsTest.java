@@ -0,0 +1,195 @@
+package org.anc.constants;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReloadableConstantsTest
+{
+   public static final String PROPERTY = "org.anc.constants.reload";
+
+   private File file;
+
+   @Before
+   public void setup() throws IOException
+   {
+      file = File.createTempFile("reload", ".properties");
+      write("THREADS=2\n");
+      System.setProperty(PROPERTY, file.getPath());
+   }
+
+   @After
+   public void cleanup()
+   {
+      System.clearProperty(PROPERTY);
+      file.delete();
+   }
+
+   @Test
+   public void testReload() throws Exception
+   {
+      ReloadableConstants<Reloadable> constants = new ReloadableConstants<Reloadable>(Reloadable.class);
+      try
+      {
+         Reloadable first = constants.get();
+         assertEquals(2, first.THREADS.intValue());
+         assertEquals(file, first.getSource());
+         write("THREADS=10\n");
+         Reloadable second = constants.reload();
+         assertSame(second, constants.get());
+         assertEquals(10, second.THREADS.intValue());
+         // The old snapshot does not change.
+         assertEquals(2, first.THREADS.intValue());
+      }
+      finally
+      {
+         constants.close();
+      }
+   }
+
+   @Test
+   public void testWatch() throws Exception
+   {
+      ReloadableConstants<Reloadable> constants = new ReloadableConstants<Reloadable>(Reloadable.class);
+      try
+      {
+         write("THREADS=16\n");
+         long end = System.currentTimeMillis() + 30000;
+         while (constants.get().THREADS.intValue() != 16 && System.currentTimeMillis() < end)
+         {
+            Thread.sleep(50);
+         }
+         assertEquals(16, constants.get().THREADS.intValue());
+      }
+      finally
+      {
+         constants.close();
+      }
+   }
+
+   @Test
+   public void testSameLengthEdit() throws Exception
+   {
+      ReloadableConstants<Reloadable> constants = new ReloadableConstants<Reloadable>(Reloadable.class);
+      try
+      {
+         long modified = file.lastModified();
+         write("THREADS=3\n");
+         assertTrue(file.setLastModified(modified));
+         assertEquals(3, constants.reload().THREADS.intValue());
+      }
+      finally
+      {
+         constants.close();
+      }
+   }
+
+   @Test
+   public void testFailedReloadKeepsSnapshot() throws Exception
+   {
+      ReloadableConstants<Reloadable> constants = new ReloadableConstants<Reloadable>(Reloadable.class);
+      try
+      {
+         Reloadable first = constants.get();
+         write("");
+         try
+         {
+            constants.reload();
+            fail("Reloaded an empty file.");
+         }
+         catch (IOException e)
+         {
+            // expected
+         }
+         assertSame(first, constants.get());
+
+         assertTrue(file.delete());
+         try
+         {
+            constants.reload();
+            fail("Reloaded a missing file.");
+         }
+         catch (IOException e)
+         {
+            // expected
+         }
+         assertSame(first, constants.get());
+         assertEquals(2, constants.get().THREADS.intValue());
+      }
+      finally
+      {
+         constants.close();
+      }
+   }
+
+   @Test
+   public void testWatchAllLayers() throws Exception
+   {
+      File host = new File(new Reloadable().getName());
+      host.getParentFile().mkdirs();
+      write(host, "NAME=host\n");
+      try
+      {
+         ReloadableConstants<Reloadable> constants = new ReloadableConstants<Reloadable>(Reloadable.class);
+         try
+         {
+            assertEquals(2, constants.get().getSources().size());
+            assertEquals("host", constants.get().NAME);
+            write(host, "NAME=changed\n");
+            long end = System.currentTimeMillis() + 30000;
+            while (!"changed".equals(constants.get().NAME) && System.currentTimeMillis() < end)
+            {
+               Thread.sleep(50);
+            }
+            assertEquals("changed", constants.get().NAME);
+            assertEquals(2, constants.get().THREADS.intValue());
+         }
+         finally
+         {
+            constants.close();
+         }
+      }
+      finally
+      {
+         host.delete();
+      }
+   }
+
+   private void write(String content) throws IOException
+   {
+      write(file, content);
+   }
+
+   private static void write(File file, String content) throws IOException
+   {
+      FileWriter writer = new FileWriter(file);
+      try
+      {
+         writer.write(content);
+      }
+      finally
+      {
+         writer.close();
+      }
+   }
+}
+
+class Reloadable extends Constants
+{
+   @Default("1")
+   public final Integer THREADS = null;
+
+   @Default("none")
+   public final String NAME = null;
+
+   public Reloadable()
+   {
+      super.init(ReloadableConstantsTest.PROPERTY);
+   }
+}
@@ -0,0 +1,100 @@
+package org.anc.constants;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TypesTest
+{
+   @Test
+   public void testPrimitives()
+   {
+      Types t = new Types();
+      assertEquals(8, t.THREADS);
+      assertEquals(536870912L, t.BUFFER_SIZE);
+      assertEquals(0.5, t.RATIO, 0.0);
+      assertEquals(1.5f, t.SCALE, 0.0f);
+      assertTrue(t.ENABLED);
+   }
+
+   @Test
+   public void testObjects()
+   {
+      Types t = new Types();
+      assertEquals(Long.valueOf(4096), t.PAGE);
+      assertEquals(Paths.get("/corpus/data"), t.DATA);
+      assertEquals(TimeUnit.SECONDS, t.UNIT);
+      assertEquals(30000L, t.TIMEOUT);
+      assertEquals(Integer.valueOf(120), t.INTERVAL);
+   }
+
+   @Test
+   public void testSize()
+   {
+      assertEquals(512, Binding.parseSize("512"));
+      assertEquals(4096, Binding.parseSize("4k"));
+      assertEquals(4096, Binding.parseSize("4KB"));
+      assertEquals(1L << 30, Binding.parseSize("1g"));
+      assertEquals(-1, Binding.parseSize("-1"));
+      try
+      {
+         Binding.parseSize("12x");
+         fail("Parsed an invalid size.");
+      }
+      catch (NumberFormatException e)
+      {
+         // expected
+      }
+   }
+
+   @Test
+   public void testDuration()
+   {
+      assertEquals(250, Binding.parseDuration("250ms", TimeUnit.MILLISECONDS));
+      assertEquals(2, Binding.parseDuration("120s", TimeUnit.MINUTES));
+      assertEquals(7200, Binding.parseDuration("2h", TimeUnit.SECONDS));
+      assertEquals(15, Binding.parseDuration("15", TimeUnit.SECONDS));
+   }
+}
+
+class Types extends Constants
+{
+   @Default("8")
+   public final int THREADS = INT;
+
+   @Default("512m")
+   public final long BUFFER_SIZE = LONG;
+
+   @Default("0.5")
+   public final double RATIO = DOUBLE;
+
+   @Default("1.5")
+   public final float SCALE = FLOAT;
+
+   @Default("true")
+   public final boolean ENABLED = BOOLEAN;
+
+   @Default("4k")
+   public final Long PAGE = null;
+
+   @Default("/corpus/data")
+   public final Path DATA = null;
+
+   @Default("seconds")
+   public final TimeUnit UNIT = null;
+
+   @Default("30s") @Duration
+   public final long TIMEOUT = LONG;
+
+   @Default("2m") @Duration(TimeUnit.SECONDS)
+   public final Integer INTERVAL = null;
+
+   public Types()
+   {
+      super.init();
+   }
+}
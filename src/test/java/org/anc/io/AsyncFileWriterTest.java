@@ -0,0 +1,166 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncFileWriterTest
+{
+   protected File root = new File("target/async");
+
+   @Before
+   public void setUp()
+   {
+      assertTrue(root.mkdirs());
+   }
+
+   @After
+   public void tearDown()
+   {
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testWrite() throws Exception
+   {
+      AsyncFileWriter writer = new AsyncFileWriter(4, 8);
+      try
+      {
+         for (int i = 0; i < 100; ++i)
+         {
+            writer.write(new File(root, i + ".txt"), "file " + i);
+         }
+         writer.flush();
+      }
+      finally
+      {
+         writer.close();
+      }
+      check(100);
+   }
+
+   @Test
+   public void testSyncBatches() throws Exception
+   {
+      AsyncFileWriter writer = new AsyncFileWriter(2, 4, 8);
+      List<Future<File>> futures = new ArrayList<Future<File>>();
+      for (int i = 0; i < 50; ++i)
+      {
+         futures.add(writer.write(new File(root, i + ".txt"), "file " + i));
+      }
+      writer.close();
+      for (Future<File> future : futures)
+      {
+         assertTrue(future.isDone());
+         assertTrue(future.get().exists());
+      }
+      check(50);
+   }
+
+   @Test
+   public void testError() throws Exception
+   {
+      AsyncFileWriter writer = new AsyncFileWriter(1, 1);
+      Future<File> future = writer.write(new File(root, "missing/file.txt"), "");
+      writer.close();
+      try
+      {
+         future.get();
+         fail("Writing to a missing directory should fail.");
+      }
+      catch (ExecutionException e)
+      {
+         assertTrue(e.getCause() instanceof IOException);
+      }
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testClosed() throws Exception
+   {
+      AsyncFileWriter writer = new AsyncFileWriter();
+      writer.close();
+      writer.write(new File(root, "closed.txt"), "closed");
+   }
+
+   @Test
+   public void testNullArguments() throws Exception
+   {
+      AsyncFileWriter writer = new AsyncFileWriter(1, 4);
+      try
+      {
+         writer.write(new File(root, "null.txt"), null);
+         fail("Queued a null string.");
+      }
+      catch (IllegalArgumentException e)
+      {
+         // expected
+      }
+      writer.write(new File(root, "0.txt"), "file 0").get();
+      writer.flush();
+      writer.close();
+      check(1);
+   }
+
+   @Test
+   public void testCloseWhileWriting() throws Exception
+   {
+      final AsyncFileWriter writer = new AsyncFileWriter(2, 4);
+      final List<Future<File>> futures = Collections.synchronizedList(new ArrayList<Future<File>>());
+      Thread[] producers = new Thread[4];
+      for (int t = 0; t < producers.length; ++t)
+      {
+         final int id = t;
+         producers[t] = new Thread() {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  for (int i = 0; i < 200; ++i)
+                  {
+                     futures.add(writer.write(new File(root, id + "-" + i + ".txt"), "x"));
+                  }
+               }
+               catch (IllegalStateException e)
+               {
+                  // The writer was closed.
+               }
+               catch (InterruptedException e)
+               {
+                  // Not expected, reported by the assertions below.
+               }
+            }
+         };
+         producers[t].start();
+      }
+      Thread.sleep(20);
+      writer.close();
+      for (Thread producer : producers)
+      {
+         producer.join();
+      }
+      for (Future<File> future : futures)
+      {
+         assertTrue(future.isDone());
+      }
+   }
+
+   protected void check(int n) throws IOException
+   {
+      for (int i = 0; i < n; ++i)
+      {
+         assertEquals("file " + i, FileUtils.read(new File(root, i + ".txt")));
+      }
+   }
+}
@@ -0,0 +1,69 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AtomicFileOutputStreamTest
+{
+   protected File root = new File("target/atomic");
+   protected File file = new File(root, "test.txt");
+
+   @Before
+   public void setUp() throws IOException
+   {
+      assertTrue(root.mkdirs());
+      FileUtils.write(file, "original");
+   }
+
+   @After
+   public void tearDown()
+   {
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testCommit() throws IOException
+   {
+      CRC32 crc = new CRC32();
+      long value = FileUtils.writeAtomic(file, "replaced", crc);
+      assertEquals("replaced", FileUtils.read(file));
+      CRC32 expected = new CRC32();
+      expected.update("replaced".getBytes(Charset.forName("UTF-8")));
+      assertEquals(expected.getValue(), value);
+      assertEquals(1, root.list().length);
+   }
+
+   @Test
+   public void testAbort() throws IOException
+   {
+      AtomicFileOutputStream out = new AtomicFileOutputStream(file);
+      try
+      {
+         out.write("partial".getBytes("UTF-8"));
+      }
+      finally
+      {
+         out.close();
+      }
+      assertFalse(out.isCommitted());
+      assertEquals("original", FileUtils.read(file));
+      assertEquals(1, root.list().length);
+   }
+
+   @Test
+   public void testNewFile() throws IOException
+   {
+      File newFile = new File(root, "new.txt");
+      FileUtils.writeAtomic(newFile, "new");
+      assertEquals("new", FileUtils.read(newFile));
+   }
+}
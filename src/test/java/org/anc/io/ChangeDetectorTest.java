@@ -0,0 +1,82 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangeDetectorTest
+{
+   protected File root = new File("target/changes");
+   protected File corpus = new File(root, "corpus");
+   protected File manifest = new File(root, "manifest.txt");
+
+   @Before
+   public void setUp() throws IOException
+   {
+      assertTrue(new File(corpus, "sub").mkdirs());
+      FileUtils.write(new File(corpus, "a.txt"), "a");
+      FileUtils.write(new File(corpus, "b.txt"), "b");
+      FileUtils.write(new File(corpus, "sub/c.txt"), "c");
+      FileUtils.write(new File(corpus, "ignored.xml"), "x");
+   }
+
+   @After
+   public void tearDown()
+   {
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testChanges() throws IOException
+   {
+      ChangeDetector detector = new ChangeDetector(corpus, new SuffixFilter(".txt"), manifest);
+      ChangeDetector.Changes changes = detector.scan();
+      assertEquals(3, changes.getAdded().size());
+      detector.save();
+
+      detector = new ChangeDetector(corpus, new SuffixFilter(".txt"), manifest);
+      assertTrue(detector.scan().isEmpty());
+
+      File a = new File(corpus, "a.txt");
+      File b = new File(corpus, "b.txt");
+      FileUtils.write(a, "changed");
+      // Touched but not changed. b has never been hashed, so this first
+      // touch is reported and records its hash.
+      assertTrue(b.setLastModified(b.lastModified() - 10000));
+      assertTrue(new File(corpus, "sub/c.txt").delete());
+      FileUtils.write(new File(corpus, "sub/d.txt"), "d");
+
+      changes = detector.scan();
+      assertEquals(1, changes.getAdded().size());
+      assertEquals("d.txt", changes.getAdded().get(0).getName());
+      assertEquals(2, changes.getModified().size());
+      assertEquals(1, changes.getDeleted().size());
+      assertEquals("c.txt", changes.getDeleted().get(0).getName());
+      detector.save();
+
+      assertTrue(new ChangeDetector(corpus, new SuffixFilter(".txt"), manifest).scan().isEmpty());
+
+      // Now that b has been hashed, touching it again is not a change.
+      assertTrue(b.setLastModified(b.lastModified() - 10000));
+      detector = new ChangeDetector(corpus, new SuffixFilter(".txt"), manifest);
+      assertTrue(detector.scan().isEmpty());
+   }
+
+   @Test
+   public void testManifestInsideRoot() throws IOException
+   {
+      File inside = new File(corpus, "manifest.txt");
+      ChangeDetector detector = new ChangeDetector(corpus, inside);
+      // a.txt, b.txt, sub/c.txt and ignored.xml, but not the manifest.
+      assertEquals(4, detector.scan().getAdded().size());
+      detector.save();
+      detector = new ChangeDetector(corpus, inside);
+      assertTrue(detector.scan().isEmpty());
+   }
+}
@@ -0,0 +1,157 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompressionTest
+{
+   protected File root = new File("target/compression");
+
+   @Before
+   public void setUp()
+   {
+      assertTrue(root.mkdirs());
+   }
+
+   @After
+   public void tearDown()
+   {
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testRoundTrip() throws IOException
+   {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 100000; ++i)
+      {
+         builder.append("line ").append(i).append('\n');
+      }
+      String expected = builder.toString();
+      File gz = new File(root, "test.txt.gz");
+      FileUtils.writeCompressed(gz, expected);
+      // Make sure the file really is compressed.
+      InputStream in = new GZIPInputStream(new java.io.FileInputStream(gz));
+      assertEquals('l', in.read());
+      in.close();
+      assertEquals(expected, FileUtils.readCompressed(gz));
+
+      // Detection does not depend on the file name.
+      File renamed = new File(root, "renamed.txt");
+      assertTrue(gz.renameTo(renamed));
+      assertEquals(expected, FileUtils.readCompressed(renamed));
+   }
+
+   @Test
+   public void testUncompressed() throws IOException
+   {
+      File file = new File(root, "plain.txt");
+      FileUtils.writeCompressed(file, "plain");
+      assertEquals("plain", FileUtils.read(file));
+      assertEquals("plain", FileUtils.readCompressed(file));
+      File empty = new File(root, "empty.txt");
+      FileUtils.write(empty, "");
+      assertEquals("", FileUtils.readCompressed(empty));
+   }
+
+   @Test(expected = IOException.class)
+   public void testUnsupported() throws IOException
+   {
+      File file = new File(root, "test.xz");
+      FileOutputStream out = new FileOutputStream(file);
+      out.write(new byte[] { (byte) 0xFD, '7', 'z', 'X', 'Z', 0, 1, 2 });
+      out.close();
+      FileUtils.readCompressed(file);
+   }
+
+   @Test(timeout = 10000)
+   public void testReadAheadSourceThrows() throws IOException
+   {
+      InputStream source = new InputStream() {
+         private int count = 0;
+
+         @Override
+         public int read()
+         {
+            if (++count > 10)
+            {
+               throw new IllegalStateException("broken source");
+            }
+            return 'x';
+         }
+      };
+      InputStream in = new ReadAheadInputStream(source, 4, 2);
+      int n = 0;
+      try
+      {
+         while (in.read() >= 0)
+         {
+            ++n;
+         }
+         fail("The source error was not reported.");
+      }
+      catch (IOException e)
+      {
+         assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+      finally
+      {
+         in.close();
+      }
+      assertEquals(8, n);
+   }
+
+   @Test(timeout = 10000)
+   public void testReadAheadCloseWaitsForReader() throws IOException
+   {
+      final boolean[] overlap = new boolean[1];
+      InputStream source = new InputStream() {
+         private volatile boolean reading = false;
+         private volatile boolean closed = false;
+
+         @Override
+         public int read()
+         {
+            if (closed)
+            {
+               overlap[0] = true;
+            }
+            reading = true;
+            try
+            {
+               Thread.sleep(1);
+            }
+            catch (InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            reading = false;
+            return 'x';
+         }
+
+         @Override
+         public void close()
+         {
+            if (reading)
+            {
+               overlap[0] = true;
+            }
+            closed = true;
+         }
+      };
+      InputStream in = new ReadAheadInputStream(source, 4, 2);
+      assertEquals('x', in.read());
+      in.close();
+      assertFalse(overlap[0]);
+   }
+}
@@ -0,0 +1,83 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class DirectoryDeleterTest
+{
+   protected File root = new File("target/deleter");
+
+   @Test
+   public void testDeleteTree() throws IOException
+   {
+      int n = create(root, 0);
+      final AtomicLong progress = new AtomicLong();
+      DirectoryDeleter deleter = new DirectoryDeleter(4);
+      deleter.setListener(new IDeleteListener() {
+         @Override
+         public void progress(long deleted)
+         {
+            progress.set(Math.max(progress.get(), deleted));
+         }
+      });
+      List<IOException> failures = deleter.delete(root);
+      deleter.close();
+      assertTrue(failures.isEmpty());
+      assertFalse(root.exists());
+      assertTrue(n > 1000);
+      assertEquals(1000, progress.get());
+   }
+
+   @Test
+   public void testCallerPool() throws IOException
+   {
+      create(root, 3);
+      ForkJoinPool pool = new ForkJoinPool(2);
+      try
+      {
+         DirectoryDeleter deleter = new DirectoryDeleter(pool);
+         assertTrue(deleter.delete(root).isEmpty());
+         deleter.close();
+         assertFalse(pool.isShutdown());
+         assertFalse(root.exists());
+      }
+      finally
+      {
+         pool.shutdown();
+      }
+   }
+
+   @Test
+   public void testMissing()
+   {
+      List<IOException> failures = new DirectoryDeleter().delete(new File("target/missing"));
+      assertEquals(1, failures.size());
+   }
+
+   /** Creates a tree five levels deep and returns the number of entries. */
+   protected int create(File directory, int depth) throws IOException
+   {
+      assertTrue(directory.mkdirs());
+      int count = 1;
+      for (int i = 0; i < 10; ++i)
+      {
+         FileUtils.write(new File(directory, "file" + i), "file");
+         ++count;
+      }
+      if (depth < 4)
+      {
+         for (int i = 0; i < 3; ++i)
+         {
+            count += create(new File(directory, "dir" + i), depth + 1);
+         }
+      }
+      return count;
+   }
+}
@@ -0,0 +1,119 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DirectoryListerTest
+{
+   protected File root = new File("target/lister");
+
+   @Before
+   public void setUp() throws IOException
+   {
+      assertTrue(root.mkdirs());
+      assertTrue(new File(root, "subdir.txt").mkdir());
+      FileUtils.write(new File(root, "a.txt"), "a");
+      FileUtils.write(new File(root, "b.txt"), "b");
+      FileUtils.write(new File(root, "c.xml"), "c");
+   }
+
+   @After
+   public void tearDown()
+   {
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testSuffixFilter() throws IOException
+   {
+      Set<String> names = list(new SuffixFilter(".txt"));
+      assertEquals(2, names.size());
+      assertTrue(names.contains("a.txt"));
+      assertTrue(names.contains("b.txt"));
+   }
+
+   @Test
+   public void testIncludeDirectories() throws IOException
+   {
+      Set<String> names = list(new SuffixFilter(".xml", true));
+      assertEquals(2, names.size());
+      assertTrue(names.contains("subdir.txt"));
+      assertTrue(names.contains("c.xml"));
+   }
+
+   @Test
+   public void testNameOnlyFiltersSkipAttributes()
+   {
+      java.nio.file.Path path = new File(root, "a.txt").toPath();
+      BasicFileAttributes unused = (BasicFileAttributes) Proxy.newProxyInstance(
+            BasicFileAttributes.class.getClassLoader(), new Class<?>[] { BasicFileAttributes.class },
+            new InvocationHandler() {
+               @Override
+               public Object invoke(Object proxy, Method method, Object[] args)
+               {
+                  throw new AssertionError("Attributes read by the filter.");
+               }
+            });
+      assertTrue(new PrefixFilter("a").accept(path, unused));
+      assertFalse(new PrefixFilter("b").accept(path, unused));
+      assertFalse(new SuffixFilter(".xml").accept(path, unused));
+      assertTrue(new SuffixFilter(".txt", true).accept(path, unused));
+      assertFalse(new PatternFilter("*.xml", false).accept(path, unused));
+   }
+
+   @Test
+   public void testDirectoryFilter() throws IOException
+   {
+      Set<String> names = list(new DirectoryFilter());
+      assertEquals(1, names.size());
+      assertTrue(names.contains("subdir.txt"));
+   }
+
+   @Test
+   public void testFileFilter() throws IOException
+   {
+      assertEquals(3, list(new FileFilter()).size());
+   }
+
+   @Test
+   public void testMultiSuffixFilter() throws IOException
+   {
+      Set<String> names = list(new MultiSuffixFilter(".anc", ".xml", "b.txt"));
+      assertEquals(2, names.size());
+      assertTrue(names.contains("b.txt"));
+      assertTrue(names.contains("c.xml"));
+      assertEquals(3, list(new MultiSuffixFilter(".txt", ".xml")).size());
+   }
+
+   @Test
+   public void testMultiPrefixFilter() throws IOException
+   {
+      Set<String> names = list(new MultiPrefixFilter("a", "c.", "sub"));
+      assertEquals(3, names.size());
+      assertFalse(names.contains("b.txt"));
+      assertEquals(0, list(new MultiPrefixFilter("a.txt.", "d")).size());
+   }
+
+   protected Set<String> list(java.io.FileFilter filter) throws IOException
+   {
+      Set<String> names = new HashSet<String>();
+      for (File file : new DirectoryLister(root, filter))
+      {
+         names.add(file.getName());
+      }
+      return names;
+   }
+}
@@ -0,0 +1,183 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExternalSortTest
+{
+   protected File root = new File("target/sort");
+   protected File input = new File(root, "input.txt");
+   protected File output = new File(root, "output.txt");
+   protected List<String> lines = new ArrayList<String>();
+
+   @Before
+   public void setUp() throws IOException
+   {
+      assertTrue(root.mkdirs());
+      Random random = new Random(42);
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 20000; ++i)
+      {
+         String line = "token" + random.nextInt(500);
+         lines.add(line);
+         builder.append(line).append('\n');
+      }
+      FileUtils.write(input, builder.toString());
+   }
+
+   @After
+   public void tearDown()
+   {
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testInMemory() throws IOException
+   {
+      ExternalSort sort = new ExternalSort();
+      sort.sort(input, output);
+      Collections.sort(lines);
+      assertEquals(lines, read(output));
+   }
+
+   @Test
+   public void testSpill() throws IOException
+   {
+      ExternalSort sort = newSort();
+      sort.setComparator(Collections.reverseOrder(new Comparator<String>() {
+         @Override
+         public int compare(String o1, String o2)
+         {
+            return o1.compareTo(o2);
+         }
+      }));
+      sort.sort(input, output);
+      Collections.sort(lines, Collections.reverseOrder());
+      assertEquals(lines, read(output));
+      // Only the input and output files should be left.
+      assertEquals(2, root.list().length);
+   }
+
+   @Test
+   public void testSpillFails() throws IOException
+   {
+      final int[] read = new int[1];
+      ExternalSort sort = new ExternalSort() {
+         @Override
+         protected File spill(List<String> run) throws IOException
+         {
+            throw new IOException("disk full");
+         }
+      };
+      sort.setMemoryLimit(2000);
+      sort.setThreads(2);
+      sort.setTempDirectory(root);
+      Iterable<String> counted = new Iterable<String>() {
+         @Override
+         public Iterator<String> iterator()
+         {
+            final Iterator<String> it = lines.iterator();
+            return new Iterator<String>() {
+               @Override
+               public boolean hasNext()
+               {
+                  return it.hasNext();
+               }
+
+               @Override
+               public String next()
+               {
+                  ++read[0];
+                  return it.next();
+               }
+
+               @Override
+               public void remove()
+               {
+                  throw new UnsupportedOperationException();
+               }
+            };
+         }
+      };
+      try
+      {
+         sort.sort(counted, output);
+         fail("The failed spill was not reported.");
+      }
+      catch (IOException e)
+      {
+         assertEquals("disk full", e.getMessage());
+      }
+      // The sort stopped long before the end of the input.
+      assertTrue(read[0] < lines.size() / 2);
+   }
+
+   @Test
+   public void testRemoveDuplicates() throws IOException
+   {
+      ExternalSort sort = newSort();
+      sort.setDuplicates(ExternalSort.Duplicates.REMOVE);
+      sort.sort(input, output);
+      assertEquals(new ArrayList<String>(count().keySet()), read(output));
+   }
+
+   @Test
+   public void testCount() throws IOException
+   {
+      ExternalSort sort = newSort();
+      sort.setDuplicates(ExternalSort.Duplicates.COUNT);
+      sort.sort(lines, output);
+      List<String> expected = new ArrayList<String>();
+      for (java.util.Map.Entry<String, Integer> e : count().entrySet())
+      {
+         expected.add(e.getKey() + "\t" + e.getValue());
+      }
+      assertEquals(expected, read(output));
+   }
+
+   /** Creates a sort with a memory limit small enough to force many runs. */
+   protected ExternalSort newSort()
+   {
+      ExternalSort sort = new ExternalSort();
+      sort.setMemoryLimit(2000);
+      sort.setThreads(3);
+      sort.setTempDirectory(root);
+      return sort;
+   }
+
+   protected TreeMap<String, Integer> count()
+   {
+      TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+      for (String line : lines)
+      {
+         Integer n = counts.get(line);
+         counts.put(line, n == null ? 1 : n + 1);
+      }
+      return counts;
+   }
+
+   protected List<String> read(File file) throws IOException
+   {
+      List<String> result = new ArrayList<String>();
+      String content = FileUtils.read(file);
+      for (String line : content.split("\n"))
+      {
+         result.add(line);
+      }
+      return result;
+   }
+}
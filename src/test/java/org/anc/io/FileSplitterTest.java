@@ -0,0 +1,74 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSplitterTest
+{
+   protected File root = new File("target/splitter");
+   protected File file = new File(root, "lines.txt");
+   protected List<String> expected = new ArrayList<String>();
+
+   @Before
+   public void setUp() throws IOException
+   {
+      assertTrue(root.mkdirs());
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 1000; ++i)
+      {
+         String line = "line " + i;
+         if (i % 100 == 0)
+         {
+            // A few long lines.
+            for (int j = 0; j < 50; ++j)
+            {
+               line += " padding";
+            }
+         }
+         expected.add(line);
+         builder.append(line).append('\n');
+      }
+      FileUtils.write(file, builder.toString());
+   }
+
+   @After
+   public void tearDown()
+   {
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testSplit() throws IOException
+   {
+      for (int n : new int[] { 1, 2, 7, 64, 5000 })
+      {
+         List<FileSplitter.Range> ranges = FileSplitter.split(file, n);
+         assertEquals(n, ranges.size());
+         assertEquals(0, ranges.get(0).getStart());
+         assertEquals(file.length(), ranges.get(n - 1).getEnd());
+         List<String> lines = new ArrayList<String>();
+         for (FileSplitter.Range range : ranges)
+         {
+            BufferedReader reader = range.openReader();
+            String line = reader.readLine();
+            while (line != null)
+            {
+               lines.add(line);
+               line = reader.readLine();
+            }
+            reader.close();
+         }
+         assertEquals(expected, lines);
+      }
+   }
+}
@@ -0,0 +1,82 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class GlobTest
+{
+   @Test
+   public void testLiteral()
+   {
+      Glob glob = Glob.compile("foo.txt");
+      assertTrue(glob.matches("foo.txt"));
+      assertFalse(glob.matches("fooXtxt"));
+      assertFalse(glob.matches("foo.txt.bak"));
+   }
+
+   @Test
+   public void testSuffix()
+   {
+      Glob glob = Glob.compile("*.txt");
+      assertTrue(glob.matches("foo.txt"));
+      assertTrue(glob.matches(".txt"));
+      assertFalse(glob.matches("foo.xml"));
+      assertFalse(glob.matches("dir/foo.txt"));
+      assertTrue(Glob.compile("**.txt").matches("dir/foo.txt"));
+   }
+
+   @Test
+   public void testPrefixAndSuffix()
+   {
+      Glob glob = Glob.compile("sw*-ptb.xml");
+      assertTrue(glob.matches("sw2014-a-trans-ptb.xml"));
+      assertFalse(glob.matches("sw2014-a-trans-fn.xml"));
+      assertFalse(glob.matches("sw-ptb.xm"));
+      // The prefix and suffix must not overlap.
+      assertFalse(Glob.compile("ab*ba").matches("aba"));
+   }
+
+   @Test
+   public void testQuestionMark()
+   {
+      Glob glob = Glob.compile("file?.txt");
+      assertTrue(glob.matches("file1.txt"));
+      assertFalse(glob.matches("file.txt"));
+      assertFalse(glob.matches("file12.txt"));
+   }
+
+   @Test
+   public void testCharacterClass()
+   {
+      Glob glob = Glob.compile("[a-c]*.[!x]ml");
+      assertTrue(glob.matches("a.hml"));
+      assertTrue(glob.matches("cat.yml"));
+      assertFalse(glob.matches("dog.yml"));
+      assertFalse(glob.matches("cat.xml"));
+      assertTrue(Glob.compile("[]]").matches("]"));
+      assertTrue(Glob.compile("[").matches("["));
+   }
+
+   @Test
+   public void testMetaCharacters()
+   {
+      assertTrue(Glob.compile("a+b(1).txt").matches("a+b(1).txt"));
+      assertFalse(Glob.compile("a+b(1).txt").matches("aab1.txt"));
+      assertTrue(Glob.compile("\\*.txt").matches("*.txt"));
+      assertFalse(Glob.compile("\\*.txt").matches("a.txt"));
+   }
+
+   @Test
+   public void testGeneral()
+   {
+      Glob glob = Glob.compile("*-*.xml");
+      assertTrue(glob.matches("a-b.xml"));
+      assertTrue(glob.matches("a-b-c.xml"));
+      assertFalse(glob.matches("ab.xml"));
+      glob = Glob.compile("**/*.xml");
+      assertTrue(glob.matches("a/b/c.xml"));
+      assertFalse(glob.matches("c.xml"));
+      assertFalse(Glob.compile("a*b?").matches("a/bc"));
+   }
+}
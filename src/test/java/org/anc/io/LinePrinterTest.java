@@ -0,0 +1,91 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.junit.Test;
+
+public class LinePrinterTest
+{
+   private static final String EOL = System.getProperty("line.separator");
+
+   @Test
+   public void testBuffered()
+   {
+      StringWriter sink = new StringWriter();
+      LinePrinter printer = new LinePrinter(sink, 16, 0);
+      printer.print("abc");
+      assertEquals("", sink.toString());
+      printer.println("a line that is longer than the buffer");
+      printer.print('x');
+      printer.flush();
+      assertEquals("abca line that is longer than the buffer" + EOL + "x", sink.toString());
+      printer.close();
+   }
+
+   @Test
+   public void testBackground()
+   {
+      StringWriter sink = new StringWriter();
+      LinePrinter printer = new LinePrinter(sink, 8, 0, true);
+      StringBuilder expected = new StringBuilder();
+      for (int i = 0; i < 1000; ++i)
+      {
+         printer.println(i);
+         expected.append(i).append(EOL);
+      }
+      printer.print(new char[] { 'e', 'n', 'd' });
+      expected.append("end");
+      printer.close();
+      assertEquals(expected.toString(), sink.toString());
+   }
+
+   @Test(timeout = 10000)
+   public void testBackgroundSinkThrows()
+   {
+      Writer sink = new Writer() {
+         @Override
+         public void write(char[] cbuf, int off, int len)
+         {
+            throw new IllegalStateException("broken sink");
+         }
+
+         @Override
+         public void flush()
+         {
+         }
+
+         @Override
+         public void close()
+         {
+         }
+      };
+      LinePrinter printer = new LinePrinter(sink, 8, 0, true);
+      for (int i = 0; i < 1000; ++i)
+      {
+         printer.println(i);
+      }
+      printer.close();
+      assertTrue(printer.checkError());
+   }
+
+   @Test(timeout = 10000)
+   public void testBackgroundPrintAfterClose()
+   {
+      StringWriter sink = new StringWriter();
+      LinePrinter printer = new LinePrinter(sink, 8, 0, true);
+      printer.println("done");
+      printer.close();
+      assertFalse(printer.checkError());
+      for (int i = 0; i < 1000; ++i)
+      {
+         printer.println(i);
+         printer.flush();
+      }
+      printer.close();
+      assertTrue(printer.checkError());
+      assertEquals("done" + EOL, sink.toString());
+   }
+}
@@ -0,0 +1,69 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelUTF8DecoderTest
+{
+   protected File root = new File("target/parallel");
+   protected File file = new File(root, "test.txt");
+   protected String expected;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      assertTrue(root.mkdirs());
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 5000; ++i)
+      {
+         builder.append(i).append(" caf\u00e9 \u4e2d\u6587 \ud83d\ude00\n");
+      }
+      expected = builder.toString();
+      FileUtils.write(file, expected);
+   }
+
+   @After
+   public void tearDown()
+   {
+      FileUtils.setParallelThreshold(FileUtils.DEFAULT_PARALLEL_THRESHOLD);
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testSmallChunks() throws IOException
+   {
+      // Odd chunk sizes guarantee that most boundaries fall inside a character.
+      for (int size : new int[] { 4, 7, 13, 1021, 1 << 20 })
+      {
+         ChunkedCharSequence chars = ParallelUTF8Decoder.decode(file, size);
+         assertEquals(expected.length(), chars.length());
+         assertEquals(expected, chars.toString());
+      }
+   }
+
+   @Test
+   public void testCharSequence() throws IOException
+   {
+      ChunkedCharSequence chars = ParallelUTF8Decoder.decode(file, 101);
+      assertTrue(chars.chunkCount() > 1);
+      for (int i = 0; i < expected.length(); i += 37)
+      {
+         assertEquals(expected.charAt(i), chars.charAt(i));
+      }
+      assertEquals(expected.substring(95, 1234), chars.subSequence(95, 1234).toString());
+   }
+
+   @Test
+   public void testFileUtils() throws IOException
+   {
+      FileUtils.setParallelThreshold(0);
+      assertEquals(expected, FileUtils.read(file));
+   }
+}
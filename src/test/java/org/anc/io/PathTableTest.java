@@ -0,0 +1,68 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PathTableTest
+{
+   @Test
+   public void testIntern()
+   {
+      PathTable table = new PathTable();
+      InternedPath a = table.intern("/corpus/data/file.txt");
+      InternedPath b = table.intern("/corpus//data/./file.txt");
+      assertSame(a, b);
+      assertEquals("/corpus/data/file.txt", a.toString());
+      assertEquals(3, a.getDepth());
+      assertEquals(3, table.size());
+      assertTrue(a.isAbsolute());
+      assertSame(table.intern("/corpus/data"), a.getParent());
+      assertSame(a, a.getParent().child("file.txt"));
+   }
+
+   @Test
+   public void testRelative()
+   {
+      PathTable table = new PathTable();
+      InternedPath path = table.intern("data/file.txt");
+      assertFalse(path.isAbsolute());
+      assertEquals("data/file.txt", path.toString());
+      assertNotSame(path, table.intern("/data/file.txt"));
+      assertSame(path, table.getRelativeRoot().resolve("data").resolve("file.txt"));
+      assertEquals("", table.getRelativeRoot().toString());
+      assertEquals("/", table.getAbsoluteRoot().toString());
+      assertEquals("/data", table.getAbsoluteRoot().child("data").toString());
+   }
+
+   @Test
+   public void testAppendTo()
+   {
+      PathTable table = new PathTable();
+      InternedPath path = table.intern("/a/bb/ccc");
+      StringBuilder buffer = new StringBuilder("path: ");
+      path.appendTo(buffer).append('!');
+      assertEquals("path: /a/bb/ccc!", buffer.toString());
+      char[] chars = new char[path.length() + 2];
+      assertEquals(path.length() + 1, path.getChars(chars, 1));
+      assertEquals("/a/bb/ccc", new String(chars, 1, path.length()));
+   }
+
+   @Test
+   public void testMany()
+   {
+      PathTable table = new PathTable();
+      for (int i = 0; i < 100; ++i)
+      {
+         for (int j = 0; j < 100; ++j)
+         {
+            table.intern("/corpus/" + i + "/" + j + ".txt");
+         }
+      }
+      assertEquals(1 + 100 + 100 * 100, table.size());
+      InternedPath path = table.intern("/corpus/42/17.txt");
+      assertEquals("/corpus/42/17.txt", path.toString());
+      assertTrue(path.startsWith(table.intern("/corpus")));
+      assertFalse(path.startsWith(table.intern("/corpus/43")));
+   }
+}
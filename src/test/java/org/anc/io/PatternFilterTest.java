@@ -34,4 +34,24 @@ public class PatternFilterTest
       assertTrue(filter.accept(shouldPass));
       assertFalse(filter.accept(shouldFail));      
    }
+
+   @Test
+   public void testMetaCharacters()
+   {
+      PatternFilter filter = new PatternFilter("file?(1)+.txt");
+      assertTrue(filter.accept(new File("fileA(1)+.txt")));
+      assertFalse(filter.accept(new File("file(1).txt")));
+   }
+
+   @Test
+   public void testCombinators()
+   {
+      java.io.FileFilter filter = new AndFilter(new PrefixFilter("sw"),
+            new NotFilter(new SuffixFilter("-fn.xml")),
+            new OrFilter(new PatternFilter("*-ptb.xml"), new SuffixFilter(".txt")));
+      assertTrue(filter.accept(new File("sw2014-a-trans-ptb.xml")));
+      assertTrue(filter.accept(new File("sw2014.txt")));
+      assertFalse(filter.accept(new File("sw2014-a-trans-fn.xml")));
+      assertFalse(filter.accept(new File("xx2014-a-trans-ptb.xml")));
+   }
 }
@@ -0,0 +1,42 @@
+package org.anc.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class UTF8PrintStreamTest
+{
+   @Test
+   public void testCharSequence() throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      UTF8PrintStream out = UTF8PrintStream.buffered(bytes, 16);
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 1000; ++i)
+      {
+         builder.append("caf\u00e9 \u4e2d\u6587 \ud83d\ude00 ");
+      }
+      out.print("start ");
+      out.print(builder);
+      out.append(new StringBuilder(" end")).println();
+      out.flush();
+      String expected = "start " + builder + " end" + System.getProperty("line.separator");
+      assertEquals(expected, bytes.toString("UTF-8"));
+      assertFalse(out.checkError());
+      out.close();
+   }
+
+   @Test
+   public void testBuffered() throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      UTF8PrintStream out = UTF8PrintStream.buffered(bytes, 1024);
+      out.println("not flushed");
+      assertEquals(0, bytes.size());
+      out.close();
+      assertEquals("not flushed" + System.getProperty("line.separator"), bytes.toString("UTF-8"));
+   }
+}
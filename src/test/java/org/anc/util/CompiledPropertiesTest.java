@@ -0,0 +1,130 @@
+package org.anc.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledPropertiesTest
+{
+   private File source;
+   private File compiled;
+
+   @Before
+   public void setup() throws IOException
+   {
+      source = File.createTempFile("compiled", ".properties");
+      compiled = new File(source.getPath() + CompiledProperties.EXTENSION);
+   }
+
+   @After
+   public void cleanup()
+   {
+      source.delete();
+      compiled.delete();
+   }
+
+   @Test
+   public void testLookup() throws IOException
+   {
+      Properties p = new Properties();
+      for (int i = 0; i < 10000; ++i)
+      {
+         p.set("key" + i, "value " + i);
+      }
+      p.set("caf\u00e9", "\u00e9t\u00e9");
+      p.save(source);
+
+      CompiledProperties table = CompiledProperties.load(source);
+      assertTrue(compiled.exists());
+      assertEquals(10001, table.size());
+      assertEquals("value 0", table.get("key0"));
+      assertEquals("value 9999", table.get("key9999"));
+      assertEquals("\u00e9t\u00e9", table.get("caf\u00e9"));
+      assertNull(table.get("key10000"));
+      assertFalse(table.containsKey("missing"));
+
+      Properties copy = table.toProperties();
+      assertEquals(p.size(), copy.size());
+      assertEquals("value 42", copy.get("key42"));
+   }
+
+   @Test
+   public void testStale() throws IOException
+   {
+      Properties p = new Properties();
+      p.set("a", "1");
+      p.save(source);
+      assertEquals("1", CompiledProperties.load(source).get("a"));
+
+      p.set("a", "2");
+      p.save(source);
+      source.setLastModified(compiled.lastModified() + 2000);
+      assertEquals("2", CompiledProperties.load(source).get("a"));
+   }
+
+   @Test
+   public void testSourceChangedEitherWay() throws IOException
+   {
+      Properties p = new Properties();
+      p.set("a", "1");
+      p.save(source);
+      long old = System.currentTimeMillis() - 60000;
+      assertTrue(source.setLastModified(old));
+      assertEquals("1", CompiledProperties.load(source).get("a"));
+      // The same length, and an older time than the compiled file.
+      p.set("a", "2");
+      p.save(source);
+      assertTrue(source.setLastModified(old - 60000));
+      assertEquals("2", CompiledProperties.load(source).get("a"));
+      // Unchanged, so the compiled file is reused.
+      long modified = compiled.lastModified();
+      assertEquals("2", CompiledProperties.load(source).get("a"));
+      assertEquals(modified, compiled.lastModified());
+   }
+
+   @Test
+   public void testRecentSourceRecompiled() throws IOException
+   {
+      Properties p = new Properties();
+      p.set("a", "1");
+      p.save(source);
+      long modified = source.lastModified();
+      assertEquals("1", CompiledProperties.load(source).get("a"));
+      // An edit within the same tick of the file system clock.
+      p.set("a", "2");
+      p.save(source);
+      assertTrue(source.setLastModified(modified));
+      assertEquals("2", CompiledProperties.load(source).get("a"));
+   }
+
+   @Test
+   public void testEmpty() throws IOException
+   {
+      CompiledProperties.compile(new Properties(), compiled);
+      CompiledProperties table = CompiledProperties.map(compiled);
+      assertEquals(0, table.size());
+      assertNull(table.get("a"));
+   }
+
+   @Test
+   public void testNotCompiled() throws IOException
+   {
+      Properties p = new Properties();
+      p.set("a", "1");
+      p.save(source);
+      try
+      {
+         CompiledProperties.map(source);
+         fail("Mapped a text properties file.");
+      }
+      catch (IOException e)
+      {
+         // expected
+      }
+   }
+}
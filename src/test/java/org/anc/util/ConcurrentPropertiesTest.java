@@ -0,0 +1,119 @@
+package org.anc.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentPropertiesTest
+{
+   private File file;
+
+   @Before
+   public void setup() throws IOException
+   {
+      file = File.createTempFile("concurrent", ".properties");
+   }
+
+   @After
+   public void cleanup()
+   {
+      file.delete();
+   }
+
+   @Test
+   public void testTyped()
+   {
+      ConcurrentProperties p = new ConcurrentProperties();
+      p.set("threads", "8");
+      p.set("size", "1099511627776");
+      p.set("ratio", "0.25");
+      p.set("enabled", "true");
+      assertEquals(8, p.getInt("threads", 1));
+      assertEquals(8, p.getInt("threads", 1));
+      assertEquals(1099511627776L, p.getLong("size", 0));
+      assertEquals(0.25, p.getDouble("ratio", 0), 0.0);
+      assertTrue(p.getBoolean("enabled", false));
+      assertEquals(3, p.getInt("missing", 3));
+      p.set("threads", "16");
+      assertEquals(16, p.getInt("threads", 1));
+   }
+
+   @Test
+   public void testMalformed()
+   {
+      ConcurrentProperties p = new ConcurrentProperties();
+      p.set("threads", "many");
+      assertEquals(4, p.getInt("threads", 4));
+      assertEquals(4, p.getInt("threads", 4));
+      assertEquals(5L, p.getLong("threads", 5));
+      assertEquals(0.5, p.getDouble("threads", 0.5), 0.0);
+   }
+
+   @Test
+   public void testSnapshot() throws IOException
+   {
+      ConcurrentProperties p = new ConcurrentProperties();
+      p.set("a", "1");
+      Map<String, String> before = p.snapshot();
+      p.set("a", "2");
+      assertEquals("1", before.get("a"));
+      assertEquals("2", p.get("a"));
+      try
+      {
+         before.put("b", "3");
+         fail("The snapshot can be modified.");
+      }
+      catch (UnsupportedOperationException e)
+      {
+         // expected
+      }
+   }
+
+   @Test
+   public void testLoad() throws Exception
+   {
+      ConcurrentProperties p = new ConcurrentProperties();
+      for (int i = 0; i < 100; ++i)
+      {
+         p.set("key" + i, Integer.toString(i));
+      }
+      p.save(file);
+
+      final ConcurrentProperties reloaded = new ConcurrentProperties();
+      reloaded.load(file);
+      assertEquals(100, reloaded.size());
+
+      // Readers must never see a partially loaded table.
+      final AtomicBoolean done = new AtomicBoolean(false);
+      final AtomicInteger errors = new AtomicInteger();
+      Thread reader = new Thread() {
+         @Override
+         public void run()
+         {
+            while (!done.get())
+            {
+               if (reloaded.getInt("key99", -1) != 99)
+               {
+                  errors.incrementAndGet();
+               }
+            }
+         }
+      };
+      reader.start();
+      for (int i = 0; i < 50; ++i)
+      {
+         reloaded.load(file);
+      }
+      done.set(true);
+      reader.join();
+      assertEquals(0, errors.get());
+   }
+}
@@ -0,0 +1,119 @@
+package org.anc.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.anc.Aspect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiRootFileMapTest
+{
+   private File root;
+
+   @Before
+   public void setup() throws Exception
+   {
+      root = Files.createTempDirectory("filemap").toFile();
+   }
+
+   @After
+   public void cleanup()
+   {
+      Aspect.delete(root);
+   }
+
+   @Test
+   public void testMap()
+   {
+      MultiRootFileMap map = new MultiRootFileMap(2);
+      map.addRoot("xml", "/corpus/xml");
+      map.addRoot("txt", "/corpus/txt");
+      Path xml = map.map("xml", "written/file.xml");
+      assertEquals(new File("/corpus/xml/written/file.xml").toPath(), xml);
+      assertSame(xml, map.map("xml", "written/file.xml"));
+      assertEquals(new File("/corpus/txt/a.txt"), map.mapFile("txt", "/a.txt"));
+      try
+      {
+         map.map("missing", "a.txt");
+         fail("Mapped a path to a missing root.");
+      }
+      catch (IllegalArgumentException e)
+      {
+         // expected
+      }
+   }
+
+   @Test
+   public void testEviction()
+   {
+      MultiRootFileMap map = new MultiRootFileMap(2);
+      map.addRoot("xml", "/corpus/xml");
+      Path a = map.map("xml", "a");
+      map.map("xml", "b");
+      map.map("xml", "c");
+      Path again = map.map("xml", "a");
+      assertNotSame(a, again);
+      assertEquals(a, again);
+   }
+
+   @Test
+   public void testMapAll() throws Exception
+   {
+      MultiRootFileMap map = new MultiRootFileMap();
+      map.addRoot("xml", new File(root, "xml").getPath());
+      map.addRoot("txt", new File(root, "txt").getPath());
+      Map<String, List<Path>> result = map.mapAll(Arrays.asList("a/1", "a/2", "b/c/3"));
+      assertEquals(2, result.size());
+      assertEquals(3, result.get("xml").size());
+      assertTrue(new File(root, "xml/a").isDirectory());
+      assertTrue(new File(root, "txt/b/c").isDirectory());
+      assertEquals(new File(root, "txt/b/c/3").toPath(), result.get("txt").get(2));
+
+      List<Path> single = map.mapAll("xml", Arrays.asList("d/4"));
+      assertEquals(1, single.size());
+      assertTrue(new File(root, "xml/d").isDirectory());
+   }
+
+   @Test
+   public void testMapAllSinglePass() throws Exception
+   {
+      MultiRootFileMap map = new MultiRootFileMap();
+      map.addRoot("xml", new File(root, "xml").getPath());
+      map.addRoot("txt", new File(root, "txt").getPath());
+      final Iterator<String> iterator = Arrays.asList("a/1", "b/2").iterator();
+      Iterable<String> once = new Iterable<String>() {
+         private boolean used = false;
+
+         @Override
+         public Iterator<String> iterator()
+         {
+            assertFalse("Iterated more than once.", used);
+            used = true;
+            return iterator;
+         }
+      };
+      Map<String, List<Path>> result = map.mapAll(once);
+      assertEquals(2, result.get("xml").size());
+      assertEquals(2, result.get("txt").size());
+      assertEquals(new File(root, "txt/b/2").toPath(), result.get("txt").get(1));
+   }
+
+   @Test
+   public void testInheritedRoot()
+   {
+      MultiRootFileMap map = new MultiRootFileMap();
+      map.addRoot("xml", "/corpus/xml");
+      map.setRoot("/corpus/default");
+      assertEquals(new File("/corpus/default/a.txt"), map.mapFile("a.txt"));
+      assertEquals(new File("/corpus/xml/a.txt"), map.mapFile("xml", "a.txt"));
+   }
+}
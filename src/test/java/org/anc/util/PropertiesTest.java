@@ -138,4 +138,130 @@ public class PropertiesTest
       }
    }
 
+   @Test
+   public void testSaveAtomic() throws IOException
+   {
+      File file = new File(FILENAME);
+      p.saveAtomic(file);
+      
+      Properties p2 = new Properties();
+      p2.load(file);
+      
+      for (String key : p.keys())
+      {
+         assertTrue(p.get(key).equals(p2.get(key)));
+      }
+   }
+
+   @Test
+   public void testEscapes() throws IOException
+   {
+      p.set("a=b", "line1\nline2");
+      p.set("#key", "C:\\data\\x");
+      p.set("path", "one\rtwo=three");
+      File file = new File(FILENAME);
+      p.save(file);
+
+      Properties p2 = new Properties();
+      p2.load(file);
+      assertEquals(p.size(), p2.size());
+      for (String key : p.keys())
+      {
+         assertEquals(p.get(key), p2.get(key));
+      }
+   }
+
+   @Test
+   public void testSorted() throws IOException
+   {
+      p.set("a", "first");
+      File file = new File(FILENAME);
+      p.save(file);
+      BufferedReader reader = new BufferedReader(new FileReader(file));
+      try
+      {
+         assertEquals("#format=2", reader.readLine());
+         assertEquals("a=first", reader.readLine());
+         assertEquals("key1=value1", reader.readLine());
+         assertEquals("key2=value2", reader.readLine());
+         assertEquals("key3=value3", reader.readLine());
+         assertNull(reader.readLine());
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   @Test
+   public void testLegacyBackslash() throws IOException
+   {
+      Properties p2 = new Properties();
+      p2.load(new ByteArrayInputStream("# comment\n\npath=C:\\data\\corpus\n  key = value".getBytes("UTF-8")));
+      assertEquals(2, p2.size());
+      assertEquals("C:\\data\\corpus", p2.get("path"));
+      assertEquals(" value", p2.get("key"));
+   }
+
+   @Test
+   public void testWindowsPaths() throws IOException
+   {
+      String content = "share=\\\\server\\share\ntemp=C:\\temp\nnew=C:\\new\\data\n";
+      File file = new File(FILENAME);
+      OutputStream out = new FileOutputStream(file);
+      out.write(content.getBytes("UTF-8"));
+      out.close();
+
+      Properties p2 = new Properties();
+      p2.load(file);
+      assertEquals("\\\\server\\share", p2.get("share"));
+      assertEquals("C:\\temp", p2.get("temp"));
+      assertEquals("C:\\new\\data", p2.get("new"));
+
+      Properties mapped = new Properties();
+      mapped.loadMapped(file);
+      assertEquals("\\\\server\\share", mapped.get("share"));
+      assertEquals("C:\\temp", mapped.get("temp"));
+   }
+
+   @Test
+   public void testEmptyMapped() throws IOException
+   {
+      File file = new File(FILENAME);
+      new FileOutputStream(file).close();
+      Properties p2 = new Properties();
+      p2.loadMapped(file);
+      assertEquals(0, p2.size());
+   }
+
+   @Test
+   public void testMalformed() throws IOException
+   {
+      Properties p2 = new Properties();
+      try
+      {
+         p2.load(new ByteArrayInputStream("key1=value1\nnovalue\n".getBytes("UTF-8")));
+         fail("Loaded a malformed file.");
+      }
+      catch (IOException e)
+      {
+         // expected
+      }
+   }
+
+   @Test
+   public void testMapped() throws IOException
+   {
+      Properties big = new Properties();
+      for (int i = 0; i < 1000; ++i)
+      {
+         big.set("key" + i, "value \u00e9 " + i);
+      }
+      File file = new File(FILENAME);
+      big.save(file);
+      Properties p2 = new Properties();
+      p2.loadMapped(file);
+      assertEquals(1000, p2.size());
+      assertEquals("value \u00e9 999", p2.get("key999"));
+   }
 }